@@ -0,0 +1,30 @@
+package proj3;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the engine benchmarks with JMH's allocation profiler attached, so every result comes with its
+ * <code>gc.alloc.rate.norm</code> (bytes allocated per operation).
+ *
+ * <pre>
+ * java proj3.Benchmarks [regex]
+ * </pre>
+ */
+public class Benchmarks {
+
+	public static void main(String[] args) throws RunnerException {
+		String include = args.length > 0 ? args[0] : "proj3\\..*Benchmark";
+		Options options = new OptionsBuilder()
+				.include(include)
+				.addProfiler(GCProfiler.class)
+				.warmupIterations(5)
+				.measurementIterations(5)
+				.forks(1)
+				.build();
+		new Runner(options).run();
+	}
+}
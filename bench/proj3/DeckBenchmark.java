@@ -0,0 +1,70 @@
+package proj3;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Micro-benchmarks for <code>Deck</code>: building, shuffling and drawing a full deck. Apart from
+ * {@link #newDeck()} they reuse one deck, the way <code>Game</code> does.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DeckBenchmark {
+
+	private Deck deck;
+	private long seed;
+
+	@Setup
+	public void setUp() {
+		deck = new Deck();
+	}
+
+	//cost of building the 52 cards
+	@Benchmark
+	public Deck newDeck() {
+		return new Deck();
+	}
+
+	//shuffle an existing deck with a new seed each time
+	@Benchmark
+	public Deck shuffle() {
+		deck.Shuffle(seed++);
+		return deck;
+	}
+
+	//draw every card index from a reused deck, the work done per deal
+	@Benchmark
+	public void drawAll(Blackhole bh) {
+		deck.setPosition(0);
+		for (int i = 0; i < deck.getSize(); i++) {
+			bh.consume(deck.drawIndex());
+		}
+	}
+
+	//draw every card as a Card object
+	@Benchmark
+	public void drawAllCards(Blackhole bh) {
+		deck.setPosition(0);
+		for (int i = 0; i < deck.getSize(); i++) {
+			bh.consume(deck.drawCard());
+		}
+	}
+
+	//shuffle and draw every card index
+	@Benchmark
+	public void shuffleAndDrawAll(Blackhole bh) {
+		deck.Shuffle(seed++);
+		for (int i = 0; i < deck.getSize(); i++) {
+			bh.consume(deck.drawIndex());
+		}
+	}
+}
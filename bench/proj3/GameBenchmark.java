@@ -0,0 +1,93 @@
+package proj3;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Micro-benchmarks for the <code>Game</code> operations used on every move. Each benchmark first puts the game back to
+ * a fixed position with <code>setState</code> so that it measures the same work every call; {@link #restore()} measures
+ * that reset on its own so it can be subtracted.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class GameBenchmark {
+
+	/**
+	 * Game number used for every position
+	 */
+	private static final long GAME_NUMBER = 12345;
+
+	private Game game;
+	//the opening deal
+	private PackedState dealt;
+	//the opening deal with every available pair removed, so consolidate has gaps to fill
+	private PackedState gappy;
+	//a legal pair in the opening deal
+	private Coordinate[] pair;
+	private long seed;
+
+	@Setup
+	public void setUp() {
+		game = new Game(5, 5);
+		game.newGame(GAME_NUMBER);
+		dealt = game.getState();
+		pair = game.getHint();
+		Coordinate[] hint;
+		while ((hint = game.getHint()) != null) {
+			game.removeCards(hint[0], hint[1]);
+		}
+		gappy = game.getState();
+	}
+
+	//cost of the reset the other benchmarks start with
+	@Benchmark
+	public Game restore() {
+		game.setState(gappy);
+		return game;
+	}
+
+	//deal a new game number
+	@Benchmark
+	public Game newGame() {
+		game.newGame(seed++);
+		return game;
+	}
+
+	//consolidate a tableau with gaps in it
+	@Benchmark
+	public Game consolidate() {
+		game.setState(gappy);
+		game.consolidate();
+		return game;
+	}
+
+	//shift a tableau with gaps in it without drawing
+	@Benchmark
+	public Game shift() {
+		game.setState(gappy);
+		game.shift();
+		return game;
+	}
+
+	//find a pair on a full tableau
+	@Benchmark
+	public Coordinate[] getHint() {
+		game.setState(dealt);
+		return game.getHint();
+	}
+
+	//remove a legal pair
+	@Benchmark
+	public boolean removeCards() {
+		game.setState(dealt);
+		return game.removeCards(pair[0], pair[1]);
+	}
+}
@@ -0,0 +1,24 @@
+package proj3;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Replaces files so that readers, and a process restarted after a crash, see either the old file or the new one and
+ * never neither or half of one.
+ */
+final class AtomicFiles {
+
+	//not instantiable
+	private AtomicFiles() {
+	}
+
+	//renames temporary over target in one step; fails rather than falling back to a delete and rename where the file
+	//system can't do that
+	static void replace(File temporary, File target) throws IOException {
+		Files.move(temporary.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+	}
+}
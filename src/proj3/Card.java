@@ -3,16 +3,49 @@ package proj3;
 import proj3.Rank;
 import proj3.Suit;
 
-public class Card {
-	private Rank rank;
-	private Suit suit;
-	
-	//constuctor
-	public Card(Rank rank, Suit suit){
+public final class Card {
+	//number of suits, so the cards of one rank have consecutive indexes
+	private static final int SUITS = Suit.values().length;
+	//number of distinct cards
+	public static final int CARDS = Rank.values().length*SUITS;
+	//the only card objects there are, by index
+	private static final Card[] CARDS_BY_INDEX = new Card[CARDS];
+	static{
+		for(Rank rank: Rank.values()){
+			for(Suit suit: Suit.values()){
+				Card card = new Card(rank, suit);
+				CARDS_BY_INDEX[card.index]=card;
+			}
+		}
+	}
+
+	private final Rank rank;
+	private final Suit suit;
+	//rank.ordinal()*4 + suit.ordinal(), cards of the same rank share index/4
+	private final int index;
+
+	//constuctor, only used to build the shared cards
+	private Card(Rank rank, Suit suit){
 		this.rank=rank;
 		this.suit=suit;
+		this.index=indexOf(rank, suit);
+	}
+
+	//the shared card for a rank and suit
+	public static Card of(Rank rank, Suit suit){
+		return CARDS_BY_INDEX[indexOf(rank, suit)];
+	}
+
+	//the shared card for an index from getIndex
+	public static Card fromIndex(int index){
+		return CARDS_BY_INDEX[index];
 	}
-	
+
+	//index of a rank and suit without looking the card up
+	public static int indexOf(Rank rank, Suit suit){
+		return rank.ordinal()*SUITS + suit.ordinal();
+	}
+
 	//get rank
 	public Rank getRank(){
 		return rank;
@@ -21,13 +54,9 @@ public class Card {
 	public Suit getSuit(){
 		return suit;
 	}
-	//rank mutator
-	public void setRank(Rank rank){
-		this.rank=rank;
-	}
-	//suit mutator
-	public void setSuit(Suit suit) {
-		this.suit=suit;
+	//get index, 0..51
+	public int getIndex(){
+		return index;
 	}
 	//override tostring method
 	public String toString(){
@@ -36,12 +65,13 @@ public class Card {
 	}
 	//unit testing
 	public static void main(String[] args){
-		Card test = new Card(Rank.ACE, Suit.CLUBS);
+		Card test = Card.of(Rank.ACE, Suit.CLUBS);
 		System.out.println(test.toString());
 		System.out.println(test.getSuit());
 		System.out.println(test.getRank());
-		test.setRank(Rank.KING);
-		test.setSuit(Suit.DIAMONDS);
-		System.out.println(test.toString());
+		System.out.println(test.getIndex()); //expecting 0
+		Card king = Card.fromIndex(Card.indexOf(Rank.KING, Suit.DIAMONDS));
+		System.out.println(king.toString()); //expecting King of Diamonds
+		System.out.println(king == Card.of(Rank.KING, Suit.DIAMONDS)); //expecting true
 	}
-}
\ No newline at end of file
+}
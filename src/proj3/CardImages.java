@@ -0,0 +1,216 @@
+package proj3;
+
+import java.awt.Graphics2D;
+import java.awt.GraphicsEnvironment;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.imageio.ImageIO;
+import javax.swing.ImageIcon;
+
+/**
+ * Decodes the 52 card faces and the card back in <code>images/</code> once and hands out shared icons, so redrawing
+ * the tableau never touches a PNG again. Each image is copied into one compatible with the screen, which Java2D can
+ * keep in video memory and draw without converting pixels.
+ *
+ * The images are decoded in parallel, and {@link #preload()} can start that before the user interface is built.
+ * Icons are never changed after loading and may be shared by any number of labels.
+ */
+public final class CardImages {
+
+	/**
+	 * The image file for each card, indexed by <code>Card.getIndex()</code>
+	 */
+	private static final String[] CARD_FILES = new String[Card.CARDS];
+	static {
+		for (int i = 0; i < Card.CARDS; i++) {
+			Card card = Card.fromIndex(i);
+			CARD_FILES[i] = String.format("images/%s_%s.png", card.getSuit().getSymbol(), card.getRank().getSymbol());
+		}
+	}
+
+	/**
+	 * The image file for the back of a card
+	 */
+	private static final String BACK_FILE = "images/back.png";
+
+	/**
+	 * The one set of images, created on first use
+	 */
+	private static CardImages instance;
+
+	/**
+	 * Faces indexed by <code>Card.getIndex()</code>
+	 */
+	private final ImageIcon[] faces = new ImageIcon[Card.CARDS];
+
+	/**
+	 * The back of a card
+	 */
+	private final ImageIcon back;
+
+	/**
+	 * Loads every image, one task per file across the available processors, failing if any is missing
+	 */
+	private CardImages() {
+		int threads = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), 8));
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<BufferedImage>> loads = new ArrayList<Future<BufferedImage>>(Card.CARDS + 1);
+			for (int i = 0; i <= Card.CARDS; i++) {
+				final String file = i < Card.CARDS ? CARD_FILES[i] : BACK_FILE;
+				loads.add(pool.submit(new Callable<BufferedImage>() {
+					public BufferedImage call() {
+						return load(file);
+					}
+				}));
+			}
+			for (int i = 0; i < Card.CARDS; i++) {
+				faces[i] = new ImageIcon(result(loads.get(i)));
+			}
+			back = new ImageIcon(result(loads.get(Card.CARDS)));
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Waits for one image, passing on any failure to load it
+	 */
+	private static BufferedImage result(Future<BufferedImage> load) {
+		try {
+			return load.get();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("interrupted loading card images", e);
+		}
+	}
+
+	/**
+	 * Starts decoding the images on a background thread, so a later {@link #get()} finds them ready or waits less
+	 */
+	public static void preload() {
+		Thread loader = new Thread(new Runnable() {
+			public void run() {
+				get();
+			}
+		}, "card-images");
+		loader.setDaemon(true);
+		loader.start();
+	}
+
+	/**
+	 * Returns the shared images, decoding them the first time this is called
+	 *
+	 * @return the card images
+	 */
+	public static synchronized CardImages get() {
+		if (instance == null) {
+			instance = new CardImages();
+		}
+		return instance;
+	}
+
+	/**
+	 * Returns the icon for a card's face
+	 *
+	 * @param card
+	 *            the card's index (see <code>Card.getIndex()</code>)
+	 * @return the shared icon
+	 */
+	public ImageIcon getFace(int card) {
+		return faces[card];
+	}
+
+	/**
+	 * Returns the icon for the back of a card
+	 *
+	 * @return the shared icon
+	 */
+	public ImageIcon getBack() {
+		return back;
+	}
+
+	/**
+	 * Decodes an image next to this class and copies it into a screen-compatible image
+	 *
+	 * @param file
+	 *            the resource name, relative to this class
+	 * @return the decoded image
+	 */
+	private static BufferedImage load(String file) {
+		InputStream in = CardImages.class.getResourceAsStream(file);
+		if (in == null) {
+			throw new IllegalStateException("missing image " + file);
+		}
+		BufferedImage decoded;
+		try {
+			try {
+				decoded = ImageIO.read(in);
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException("can't read image " + file, e);
+		}
+		if (decoded == null) {
+			throw new IllegalStateException("can't decode image " + file);
+		}
+		return toCompatible(decoded);
+	}
+
+	/**
+	 * Copies an image into the screen's preferred format, or an ARGB one when there is no screen
+	 *
+	 * @param image
+	 *            the decoded image
+	 * @return an image with the same pixels
+	 */
+	private static BufferedImage toCompatible(BufferedImage image) {
+		BufferedImage copy;
+		if (GraphicsEnvironment.isHeadless()) {
+			copy = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_ARGB_PRE);
+		} else {
+			copy = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration()
+					.createCompatibleImage(image.getWidth(), image.getHeight(), Transparency.TRANSLUCENT);
+		}
+		Graphics2D g = copy.createGraphics();
+		try {
+			g.drawImage(image, 0, 0, null);
+		} finally {
+			g.dispose();
+		}
+		return copy;
+	}
+
+	/**
+	 * Unit testing: times the first and second request for the images
+	 *
+	 * @param args
+	 *            not used
+	 */
+	public static void main(String[] args) {
+		long start = System.nanoTime();
+		CardImages images = CardImages.get();
+		long loaded = System.nanoTime();
+		CardImages again = CardImages.get();
+		long cached = System.nanoTime();
+		System.out.println("loaded " + (Card.CARDS + 1) + " images in " + (loaded - start) / 1000000 + " ms");
+		System.out.println("second request " + (cached - loaded) / 1000 + " us, same: " + (images == again));
+		System.out.println(images.getFace(0).getIconWidth() + "x" + images.getFace(0).getIconHeight());
+	}
+}
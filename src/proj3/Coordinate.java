@@ -3,10 +3,17 @@ package proj3;
 public final class Coordinate {
 	private int rows;
 	private int cols;
-	//constructor
+	//columns on the tableau this coordinate is for, so getPos is right on any size
+	private int width;
+	//constructor for the standard 5-column tableau
 	public Coordinate(int rows, int cols){
+		this(rows, cols, 5);
+	}
+	//constructor for a tableau width columns wide
+	public Coordinate(int rows, int cols, int width){
 		this.rows=rows;
 		this.cols=cols;
+		this.width=width;
 	}
 	//accessor for cols
 	public int getColumn(){
@@ -18,7 +25,7 @@ public final class Coordinate {
 	}
 	//Accesses pos
 	public int getPos(){
-		return (rows*5)+cols;
+		return (rows*width)+cols;
 	}
 	
 	//public static void main(String[] args){
@@ -0,0 +1,489 @@
+package proj3;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Splits a survey across processes and machines. The coordinator cuts a range of game numbers into shards and hands
+ * them out over TCP to any number of {@link SurveyWorker} processes, each of which surveys its shard on all of its
+ * cores and sends back the totals; the coordinator adds them up and prints the same report as <code>Survey</code>.
+ *
+ * <pre>
+ * java proj3.Coordinator [first] [last] [-port n] [-bind address] [-shard n] [-nodes n] [-state file]
+ * </pre>
+ *
+ * A worker that disconnects, or goes {@link #TIMEOUT_MILLIS} ms without a heartbeat, has its shard put back at the
+ * front of the queue for the next worker; if it turns out to be alive after all, whichever copy of the shard finishes
+ * first is counted. With <code>-state</code> every finished shard is appended to a file, and a coordinator restarted
+ * with the same file and range skips those shards.
+ *
+ * The coordinator listens on the loopback address unless given <code>-bind</code> (for example
+ * <code>-bind 0.0.0.0</code> to take workers from the LAN). The protocol is plain lines of text:
+ *
+ * <pre>
+ * worker: HELLO name threads        coordinator: SHARD id first last nodeLimit | WAIT | DONE
+ * worker: NEXT                      (WAIT: every shard is out, ask again shortly)
+ * worker: PING                      (while working, every HEARTBEAT_MILLIS)
+ * worker: RESULT id tally           (see Survey.Tally.encode)
+ * </pre>
+ */
+public class Coordinator {
+
+	/**
+	 * Port used when none is given
+	 */
+	public static final int DEFAULT_PORT = 7461;
+
+	/**
+	 * Game numbers per shard when not given
+	 */
+	public static final long DEFAULT_SHARD_SIZE = 100000;
+
+	/**
+	 * How often a worker says it is still working on its shard
+	 */
+	public static final int HEARTBEAT_MILLIS = 10000;
+
+	/**
+	 * How long the coordinator waits to hear from a worker before giving its shard to someone else
+	 */
+	public static final int TIMEOUT_MILLIS = 6 * HEARTBEAT_MILLIS;
+
+	/**
+	 * Most shards one survey may be cut into
+	 */
+	private static final long MAX_SHARDS = 10000000;
+
+	/**
+	 * Shard number meaning there is nothing to hand out right now
+	 */
+	private static final int WAIT = -1;
+
+	/**
+	 * Shard number meaning the survey is finished
+	 */
+	private static final int DONE = -2;
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private final long first;
+	private final long last;
+	private final long shardSize;
+	private final long nodeLimit;
+	//shards not yet handed out, or handed back; guarded by this
+	private final Deque<Integer> pending = new ArrayDeque<Integer>();
+	private final boolean[] finished;
+	private int remaining;
+	//workers connected right now
+	private int connected;
+	private final Survey.Tally total = new Survey.Tally();
+	//finished shards are appended here, may be null
+	private final File state;
+
+	//constructor for surveying [first, last] in shards of shardSize, resuming from state if it exists
+	public Coordinator(long first, long last, long shardSize, long nodeLimit, File state) throws IOException {
+		long shards = (last - first) / shardSize + 1;
+		if (shards > MAX_SHARDS) {
+			throw new IllegalArgumentException("shards of " + shardSize + " would make " + shards + " of them");
+		}
+		this.first = first;
+		this.last = last;
+		this.shardSize = shardSize;
+		this.nodeLimit = nodeLimit;
+		this.state = state;
+		finished = new boolean[(int) shards];
+		if (state != null && state.isFile()) {
+			load(state);
+		} else if (state != null) {
+			append("range " + first + " " + last + " " + shardSize + " " + nodeLimit);
+		}
+		for (int shard = 0; shard < finished.length; shard++) {
+			if (!finished[shard]) {
+				pending.addLast(shard);
+				remaining++;
+			}
+		}
+	}
+
+	//reads the shards finished by an earlier run
+	private void load(File file) throws IOException {
+		BufferedReader in = new BufferedReader(new FileReader(file));
+		try {
+			String header = in.readLine();
+			if (!("range " + first + " " + last + " " + shardSize + " " + nodeLimit).equals(header)) {
+				throw new IOException(file + " is for a different survey: " + header);
+			}
+			String line;
+			while ((line = in.readLine()) != null) {
+				// a line cut short by a crash has too few fields and is simply done again
+				String[] parts = line.split(" ", 2);
+				try {
+					int shard = Integer.parseInt(parts[0]);
+					Survey.Tally tally = Survey.Tally.decode(parts[1]);
+					if (!finished[shard]) {
+						finished[shard] = true;
+						total.add(tally);
+					}
+				} catch (RuntimeException e) {
+					System.err.println("skipping damaged line in " + file + ": " + line);
+				}
+			}
+		} finally {
+			in.close();
+		}
+	}
+
+	//appends a line to the state file
+	private void append(String line) throws IOException {
+		Writer out = new FileWriter(state, true);
+		try {
+			out.write(line + "\n");
+		} finally {
+			out.close();
+		}
+	}
+
+	//first game number of a shard
+	private long shardFirst(int shard) {
+		return first + shard * shardSize;
+	}
+
+	//last game number of a shard
+	private long shardLast(int shard) {
+		return Math.min(last, shardFirst(shard) + shardSize - 1);
+	}
+
+	//the next shard to hand out, WAIT if they are all out, or DONE
+	synchronized int take() {
+		if (remaining == 0) {
+			return DONE;
+		}
+		Integer shard = pending.pollFirst();
+		return shard == null ? WAIT : shard;
+	}
+
+	//puts a shard whose worker was lost back at the front of the queue
+	synchronized void release(int shard) {
+		if (!finished[shard] && !pending.contains(shard)) {
+			pending.addFirst(shard);
+		}
+	}
+
+	//counts a finished shard, unless another worker finished it first
+	synchronized void complete(int shard, Survey.Tally tally) throws IOException {
+		if (finished[shard]) {
+			return;
+		}
+		finished[shard] = true;
+		// the shard may have been handed back while this worker was thought lost
+		pending.remove(shard);
+		total.add(tally);
+		remaining--;
+		if (state != null) {
+			append(shard + " " + tally.encode());
+		}
+		notifyAll();
+	}
+
+	//waits until every shard is finished and returns the totals
+	synchronized Survey.Tally await() throws InterruptedException {
+		while (remaining > 0) {
+			wait();
+		}
+		return total;
+	}
+
+	//waits up to millis for every connected worker to hear DONE and leave
+	private synchronized void awaitWorkers(long millis) throws InterruptedException {
+		long end = System.currentTimeMillis() + millis;
+		while (connected > 0 && System.currentTimeMillis() < end) {
+			wait(Math.max(1, end - System.currentTimeMillis()));
+		}
+	}
+
+	//counts a worker arriving (+1) or leaving (-1)
+	private synchronized void connect(int change) {
+		connected += change;
+		notifyAll();
+	}
+
+	//true if a shard is waiting to be handed out
+	synchronized boolean isPending(int shard) {
+		return pending.contains(shard);
+	}
+
+	//number of shards still to finish
+	synchronized int getRemaining() {
+		return remaining;
+	}
+
+	//accepts workers on server until the survey is finished, each on its own thread
+	public Survey.Tally run(final ServerSocket server) throws InterruptedException {
+		Thread acceptor = new Thread(new Runnable() {
+			public void run() {
+				try {
+					while (true) {
+						final Socket socket = server.accept();
+						Thread handler = new Thread(new Runnable() {
+							public void run() {
+								serve(socket);
+							}
+						}, "worker-" + socket.getRemoteSocketAddress());
+						handler.setDaemon(true);
+						handler.start();
+					}
+				} catch (IOException e) {
+					// server closed
+				}
+			}
+		}, "coordinator-accept");
+		acceptor.setDaemon(true);
+		acceptor.start();
+		Survey.Tally tally = await();
+		// new workers are turned away; connected ones are told DONE on their next request, which comes as soon as
+		// they send their last result
+		try {
+			server.close();
+		} catch (IOException e) {
+			// nothing more to accept either way
+		}
+		awaitWorkers(HEARTBEAT_MILLIS);
+		return tally;
+	}
+
+	//counts the shard and tally of a RESULT line, returns the shard or -1 if the line doesn't name a shard of this
+	//survey with a readable tally
+	private int completeResult(String text) throws IOException {
+		String[] parts = text.split(" ", 2);
+		int done;
+		Survey.Tally tally;
+		try {
+			done = Integer.parseInt(parts[0]);
+			tally = Survey.Tally.decode(parts.length > 1 ? parts[1] : "");
+		} catch (IllegalArgumentException e) {
+			return -1;
+		}
+		if (done < 0 || done >= finished.length) {
+			return -1;
+		}
+		complete(done, tally);
+		return done;
+	}
+
+	//talks to one worker until it leaves or is lost
+	private void serve(Socket socket) {
+		String name = String.valueOf(socket.getRemoteSocketAddress());
+		int shard = WAIT;
+		connect(1);
+		try {
+			socket.setSoTimeout(TIMEOUT_MILLIS);
+			BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), UTF8));
+			PrintWriter out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), UTF8));
+			String line;
+			while ((line = in.readLine()) != null) {
+				if (line.startsWith("HELLO ")) {
+					name = line.substring(6) + " at " + name;
+					System.out.println("worker " + name + " joined");
+				} else if (line.equals("NEXT")) {
+					if (shard >= 0) {
+						// asking again without a result means the worker gave up on its shard
+						release(shard);
+					}
+					shard = take();
+					if (shard == DONE) {
+						out.print("DONE\n");
+					} else if (shard == WAIT) {
+						out.print("WAIT\n");
+					} else {
+						out.print("SHARD " + shard + " " + shardFirst(shard) + " " + shardLast(shard) + " " + nodeLimit
+								+ "\n");
+					}
+					out.flush();
+				} else if (line.startsWith("RESULT ")) {
+					int done = completeResult(line.substring(7));
+					if (done < 0) {
+						// dropping the connection would cost the shard this worker is really on
+						System.err.println("ignoring bad result from worker " + name + ": " + line);
+					} else {
+						if (done == shard) {
+							shard = WAIT;
+						}
+						System.out.println("shard " + done + " finished by " + name + ", " + getRemaining() + " to go");
+					}
+				} else if (!line.equals("PING")) {
+					throw new IOException("unexpected message: " + line);
+				}
+			}
+		} catch (SocketException e) {
+			// connection dropped
+		} catch (IOException e) {
+			System.err.println("worker " + name + ": " + e.getMessage());
+		} catch (RuntimeException e) {
+			System.err.println("worker " + name + " sent something unreadable: " + e);
+		} finally {
+			if (shard >= 0) {
+				release(shard);
+				System.out.println("lost worker " + name + ", shard " + shard + " goes back in the queue");
+			}
+			try {
+				socket.close();
+			} catch (IOException e) {
+				// already gone
+			}
+			connect(-1);
+		}
+	}
+
+	//prints usage and quits
+	private static void usage() {
+		System.err.println("usage: java proj3.Coordinator [first] [last] [-port n] [-bind address] [-shard n] "
+				+ "[-nodes n] [-state file]");
+		System.err.println("       java proj3.Coordinator check");
+		System.exit(2);
+	}
+
+	//sends one line as a worker would and returns the coordinator's answer, or null if none is expected
+	private static String say(PrintWriter out, BufferedReader in, String line) throws IOException {
+		out.print(line + "\n");
+		out.flush();
+		return line.equals("NEXT") ? in.readLine() : null;
+	}
+
+	//unit testing, with fake workers speaking the protocol over loopback
+	private static void check() throws IOException, InterruptedException {
+		Survey.Tally tally = new Survey.Tally();
+		tally.add(new Solver.Result(1, Solver.Status.SOLVED, new int[26], 52, 900, 0));
+		tally.add(new Solver.Result(2, Solver.Status.UNSOLVABLE, new int[0], 40, 300, 0));
+		tally.add(new Solver.Result(3, Solver.Status.UNKNOWN, new int[0], 44, 2000, 0));
+		System.out.println(tally.encode()); //expecting 3 1 1 1 136 3200 900 here
+		System.out.println(Survey.Tally.decode(tally.encode()).encode().equals(tally.encode())); //expecting true here
+		try {
+			Survey.Tally.decode("3 1 1");
+			System.out.println("decoded");
+		} catch (IllegalArgumentException e) {
+			System.out.println(e.getMessage()); //expecting not a tally: 3 1 1 here
+		}
+
+		final Coordinator coordinator = new Coordinator(0, 999, 250, 1000, null);
+		final ServerSocket server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+		final Survey.Tally[] total = new Survey.Tally[1];
+		Thread running = new Thread(new Runnable() {
+			public void run() {
+				try {
+					total[0] = coordinator.run(server);
+				} catch (InterruptedException e) {
+					// check failed
+				}
+			}
+		});
+		running.start();
+		String shard = "250 200 50 0 12000 1000 800";
+
+		// a worker that takes a shard and dies
+		Socket lost = new Socket(InetAddress.getLoopbackAddress(), server.getLocalPort());
+		PrintWriter out = new PrintWriter(new OutputStreamWriter(lost.getOutputStream(), UTF8));
+		BufferedReader in = new BufferedReader(new InputStreamReader(lost.getInputStream(), UTF8));
+		say(out, in, "HELLO lost 1");
+		System.out.println(say(out, in, "NEXT")); //expecting SHARD 0 0 249 1000 here
+		lost.close();
+		while (!coordinator.isPending(0)) {
+			Thread.sleep(1);
+		}
+
+		Socket worker = new Socket(InetAddress.getLoopbackAddress(), server.getLocalPort());
+		out = new PrintWriter(new OutputStreamWriter(worker.getOutputStream(), UTF8));
+		in = new BufferedReader(new InputStreamReader(worker.getInputStream(), UTF8));
+		say(out, in, "HELLO worker 1");
+		System.out.println(say(out, in, "NEXT")); //expecting SHARD 0 0 249 1000 here, handed back by the lost worker
+		// nonsense is ignored without dropping the worker or its shard
+		say(out, in, "RESULT 99 " + shard);
+		say(out, in, "RESULT -1 " + shard);
+		say(out, in, "RESULT 0 12");
+		say(out, in, "PING");
+		say(out, in, "RESULT 0 " + shard);
+		// a shard finished twice counts once
+		say(out, in, "RESULT 0 " + shard);
+		System.out.println(say(out, in, "NEXT")); //expecting SHARD 1 250 499 1000 here
+		say(out, in, "RESULT 1 " + shard);
+		System.out.println(say(out, in, "NEXT")); //expecting SHARD 2 500 749 1000 here
+		say(out, in, "RESULT 2 " + shard);
+		System.out.println(say(out, in, "NEXT")); //expecting SHARD 3 750 999 1000 here
+		say(out, in, "RESULT 3 " + shard);
+		System.out.println(say(out, in, "NEXT")); //expecting DONE here
+		worker.close();
+		running.join();
+		System.out.println(total[0].encode()); //expecting 1000 800 200 0 48000 4000 3200 here
+	}
+
+	//command line entry point
+	public static void main(String[] args) throws IOException, InterruptedException {
+		if (args.length == 1 && args[0].equals("check")) {
+			check();
+			return;
+		}
+
+		long first = 0;
+		long last = 999999999L;
+		int port = DEFAULT_PORT;
+		String bind = null;
+		long shardSize = DEFAULT_SHARD_SIZE;
+		long nodeLimit = Solver.DEFAULT_NODE_LIMIT;
+		File state = null;
+		int position = 0;
+		try {
+			for (int i = 0; i < args.length; i++) {
+				if (args[i].equals("-port") && i + 1 < args.length) {
+					port = Integer.parseInt(args[++i]);
+				} else if (args[i].equals("-bind") && i + 1 < args.length) {
+					bind = args[++i];
+				} else if (args[i].equals("-shard") && i + 1 < args.length) {
+					shardSize = Long.parseLong(args[++i]);
+				} else if (args[i].equals("-nodes") && i + 1 < args.length) {
+					nodeLimit = Long.parseLong(args[++i]);
+				} else if (args[i].equals("-state") && i + 1 < args.length) {
+					state = new File(args[++i]);
+				} else if (position == 0) {
+					first = Long.parseLong(args[i]);
+					position++;
+				} else if (position == 1) {
+					last = Long.parseLong(args[i]);
+					position++;
+				} else {
+					usage();
+				}
+			}
+		} catch (NumberFormatException e) {
+			usage();
+		}
+		if (first < 0 || last < first || shardSize < 1 || nodeLimit < 1) {
+			usage();
+		}
+
+		Coordinator coordinator = new Coordinator(first, last, shardSize, nodeLimit, state);
+		ServerSocket server = new ServerSocket();
+		server.setReuseAddress(true);
+		InetAddress address = bind == null ? InetAddress.getLoopbackAddress() : InetAddress.getByName(bind);
+		server.bind(new InetSocketAddress(address, port));
+		System.out.println("Surveying games " + first + " to " + last + " in " + coordinator.finished.length
+				+ " shards, " + coordinator.getRemaining() + " to go, waiting for workers on "
+				+ server.getLocalSocketAddress());
+		long start = System.nanoTime();
+		Survey.Tally tally = coordinator.run(server);
+		Survey.report(tally, nodeLimit, (System.nanoTime() - start) / 1e9);
+	}
+}
@@ -1,93 +1,196 @@
 package proj3;
 
-import java.util.Random;
-
 public class Deck {
 	//variables
-	private final int deckSize=52;
-	Card[] deck = new Card[deckSize];
+	//number of 52-card decks in the shoe
+	private final int decks;
+	private final int deckSize;
+	//card indexes (see Card.getIndex) in the order they will be drawn
+	private final byte[] deck;
 	private int next;
-	
-	//constructor
+
+	//java.util.Random's generator, inlined so a shuffle allocates nothing
+	private static final long MULTIPLIER = 0x5DEECE66DL;
+	private static final long ADDEND = 0xBL;
+	private static final long MASK = (1L << 48) - 1;
+	private long rngState;
+
+	//constructor for a single deck
 	public Deck(){
+		this(1);
+	}
+
+	//constructor for a shoe of several decks shuffled together, each card appears once per deck
+	public Deck(int decks){
+		if(decks<1){
+			throw new IllegalArgumentException("a shoe needs at least one deck, not " + decks);
+		}
+		this.decks=decks;
+		deckSize=decks*Card.CARDS;
+		deck=new byte[deckSize];
+		fill();
+	}
+
+	//put the cards back in their starting order, deck by deck and suit by suit, and draw from the top
+	private void fill(){
 		int position=0;
-		for(Suit suit: Suit.values()){
-			for(Rank rank: Rank.values()){
-				deck[position]= new Card(rank, suit);
-				position++;
+		for(int d=0; d<decks; d++){
+			for(Suit suit: Suit.values()){
+				for(Rank rank: Rank.values()){
+					deck[position]= (byte) Card.indexOf(rank, suit);
+					position++;
+				}
 			}
 		}
+		next=0;
 	}
-	
-	//return the next card in the deck and then make it's position null
+
+	//return the next card in the deck, or null if there are none left
 	public Card drawCard(){
-		Card temp = deck[next];
-		deck[next] = null;
-		next = findNextCardIndex();
-		return temp;
+		int card=drawIndex();
+		if(card<0){
+			return null;
+		}
+		return Card.fromIndex(card);
 	}
 
-	//shuffle
+	//same as drawCard but returns the card index, or -1 if there are none left
+	public int drawIndex(){
+		if(next>=deckSize){
+			return -1;
+		}
+		return deck[next++];
+	}
+
+	//gathers every card and shuffles them, the same seed always gives the same order
 	public void Shuffle(long seed){
+		fill();
 		int size=deckSize-1;
-		Random seedNum= new Random(seed);
-		//seedNum.setSeed(seed);
-		
+		rngState=(seed ^ MULTIPLIER) & MASK;
+
 		while(size>0){
-		//seedNum.nextInt(deckSize);
-		int randPos=seedNum.nextInt(size+1);
-		Card temp = deck[size];
+		int randPos=nextInt(size+1);
+		byte temp = deck[size];
 		deck[size]=deck[randPos];
 		deck[randPos]= temp;
 		size--;
 		}
 	}
-	
-	//return the next card in the deck
-	private int findNextCardIndex(){
-		for(int i = 0; i < deck.length; i++){
-			if(!(deck[i] == null)){
-				return i;
-			}
+
+	//same result as java.util.Random.nextInt(bound) for the same seed
+	private int nextInt(int bound){
+		int r=next31();
+		int m=bound-1;
+		if((bound & m)==0){
+			return (int) ((bound * (long) r) >> 31);
+		}
+		//reject values from the top of the range that would make the result uneven
+		int u=r;
+		while(u-(r=u%bound)+m<0){
+			u=next31();
+		}
+		return r;
+	}
+
+	//next 31 random bits, as java.util.Random.next(31)
+	private int next31(){
+		rngState=(rngState*MULTIPLIER+ADDEND) & MASK;
+		return (int) (rngState >>> 17);
+	}
+
+	//number of cards drawn so far
+	public int getPosition(){
+		return next;
+	}
+
+	//rewind or skip ahead so that the next draw is the card at position
+	public void setPosition(int position){
+		if(position<0 || position>deckSize){
+			throw new IllegalArgumentException("position " + position + " is outside the deck");
+		}
+		next=position;
+	}
+
+	//make this deck a copy of another of the same size, order and position
+	public void copyFrom(Deck other){
+		if(other.deckSize!=deckSize){
+			throw new IllegalArgumentException("can't copy a " + other.deckSize + " card deck");
 		}
-		return -1;
+		System.arraycopy(other.deck, 0, deck, 0, deckSize);
+		next=other.next;
+	}
+
+	//number of cards not yet drawn
+	public int cardsLeft(){
+		return deckSize-next;
 	}
 
 	//override default tostring method
 	public String toString(){
-		String card="";
-		for(int i=0; i<52; i++){
-		card+=deck[i].getRank() + " " + deck[i].getSuit() + "\n";
+		StringBuilder card=new StringBuilder();
+		for(int i=0; i<deckSize; i++){
+		Card c=getCardAt(i);
+		card.append(c.getRank()).append(' ').append(c.getSuit()).append('\n');
 		}
-		return card;
+		return card.toString();
 	}
-	
+
 	//simnple mutator
 	public void setCard(int pos, Card c){
-		deck[pos]=c;
+		deck[pos]=(byte) c.getIndex();
 	}
-	
-	//simple accesser 
+
+	//simple accesser
 	public int getSize(){
 		return deckSize;
 	}
-	
+
+	//number of 52-card decks in the shoe
+	public int getDecks(){
+		return decks;
+	}
+
 	//getNextCard
 	public Card getCardAt(int next){
-		return deck[next];
+		return Card.fromIndex(deck[next]);
 	}
-	
+
+	//card index at a position in the deck
+	public int getIndexAt(int pos){
+		return deck[pos];
+	}
+
 	//Unit Testing
 	public static void main(String[] args){
 		//constructor
 		Deck test = new Deck();
-		
+
 		//method tests
-		System.out.println(test.findNextCardIndex()); //expecting 0
+		System.out.println(test.getPosition()); //expecting 0
 		System.out.println(test.drawCard()); //expecting Ace of Clubs
 		System.out.println(test.getSize()); //expecting 52
-		System.out.println(test.findNextCardIndex()); //expecting 1
+		System.out.println(test.getPosition()); //expecting 1
 		test.Shuffle(12345);
 		System.out.println(test.drawCard()); //expecting random card
+
+		//same seed must deal the same order as java.util.Random based shuffling always has
+		java.util.Random random = new java.util.Random(12345);
+		Deck expected = new Deck();
+		for(int size=expected.getSize()-1; size>0; size--){
+			int randPos=random.nextInt(size+1);
+			byte temp=expected.deck[size];
+			expected.deck[size]=expected.deck[randPos];
+			expected.deck[randPos]=temp;
+		}
+		System.out.println(java.util.Arrays.equals(expected.deck, test.deck)); //expecting true
+
+		//a three deck shoe holds every card three times
+		Deck shoe = new Deck(3);
+		shoe.Shuffle(12345);
+		int[] copies = new int[Card.CARDS];
+		for(int i=0; i<shoe.getSize(); i++){
+			copies[shoe.getIndexAt(i)]++;
+		}
+		System.out.println(shoe.getSize() + " " + copies[0] + " " + copies[Card.CARDS-1]); //expecting 156 3 3
 	}
 }
@@ -1,23 +1,48 @@
 package proj3;
 import java.util.Random;
 
-public class Game {
+public class Game implements GameEngine {
 	//instance variables
 	private long rngSeed;
 	private int rows;
 	private int cols;
-	private Card[] monteCarlo;
-	private Deck deck = new Deck();
-	private int cardsRemoved;
-	int cardsMissing;
-	int empty;
-	int cardsDealt=0;
-	
-	//constructor
+	//cells, neighbours and shared coordinates of a rows x cols tableau
+	private Geometry geometry;
+	//tableau packed as 6-bit card indexes, see PackedState
+	private long[] monteCarlo;
+	//reused for every deal, its position is the number of cards drawn
+	private Deck deck;
+	//cards on the tableau, kept current as cells change so the score needs no scan
+	private int cardCount;
+	//legal pairs on the tableau, kept current as cells change
+	private MoveIndex moves;
+	//keys for hashing positions
+	private Zobrist zobrist;
+	//Zobrist hash of the current position, kept current as cells change and cards are drawn
+	private long hash;
+	//moves since the deal, for undo and redo
+	private MoveJournal journal;
+	//false for throwaway games (playouts) that never undo, so moves record nothing
+	private boolean recording = true;
+	//tableau cells [changedFrom, changedTo) are the only ones the last move could have changed
+	private int changedFrom;
+	private int changedTo;
+	
+	//constructor for a single deck
 	public Game(int rows, int cols){
+		this(rows, cols, 1);
+	}
+	
+	//constructor for a shoe of several 52-card decks, for long games on big tableaus
+	public Game(int rows, int cols, int decks){
 		this.rows=rows;
 		this.cols=cols;
-		monteCarlo = new Card[rows*cols];
+		deck = new Deck(decks);
+		geometry = Geometry.of(rows, cols);
+		monteCarlo = PackedState.emptyWords(rows*cols);
+		moves = new MoveIndex(geometry);
+		journal = new MoveJournal(rows, cols);
+		zobrist = new Zobrist(rows*cols, deck.getSize());
 		//create a random number using the random library
 		Random rand = new Random();
 		rngSeed=rand.nextLong();
@@ -30,94 +55,478 @@ public class Game {
 	
 	//shifts all cards back of tableau then deals where necessary
 	public void consolidate(){
-		shift();
-		int nullCount=0;
-		//loop through keeping track of null spaces
-		for(int i=0; i<monteCarlo.length; i++){
-			if(monteCarlo[i]==null){
-				nullCount++;
-			}
+		int drawn=deck.getPosition();
+		if(recording){
+			journal.addConsolidate(monteCarlo, rows*cols);
 		}
-		//if there's cards left and nulls left deal cards till one is gone
-		while(nullCount>0 && numberOfCardsLeft()>0){
-			monteCarlo[rows*cols-nullCount]=deck.drawCard();
-			cardsDealt++;
-			nullCount--;
+		compact(true);
+		if(recording){
+			journal.setDealt(deck.getPosition()-drawn);
 		}
+		moves.update(monteCarlo, changedFrom, changedTo);
 	}
 	
-	//pass all non null cards into a temp array and then replace them in tableau
+	//slide all cards towards the front of the tableau, keeping their order
 	public void shift(){
-		Card[] temp = new Card[rows*cols];
-		int tempCount=0;
-		for(int i=0; i<monteCarlo.length; i++){
-			if(monteCarlo[i] != null){
-				temp[tempCount]=monteCarlo[i];
-				tempCount++;
+		if(recording){
+			journal.addConsolidate(monteCarlo, rows*cols);
+		}
+		compact(false);
+		moves.update(monteCarlo, changedFrom, changedTo);
+	}
+	
+	//slides the cards forward in place and optionally deals into the gaps at the end, in one pass over the tableau;
+	//sets [changedFrom, changedTo) to the cells that may differ, cells past the last card before and after can't
+	private void compact(boolean deal){
+		int cells=rows*cols;
+		int write=0;
+		int firstGap=-1;
+		int lastCard=0;
+		for(int read=0; read<cells; read++){
+			int card=PackedState.get(monteCarlo, read);
+			if(card != PackedState.EMPTY){
+				if(write!=read){
+					setCard(write, card);
+				}
+				write++;
+				lastCard=read+1;
+			} else if(firstGap<0){
+				firstGap=read;
 			}
 		}
-		for(int i=0; i<temp.length; i++){
-			monteCarlo[i]=temp[i];
+		if(firstGap<0){
+			changedFrom=changedTo=0;
+			return;
+		}
+		//cards dealt go straight into the tail, the rest of it is cleared
+		int i=write;
+		if(deal){
+			for(; i<cells && numberOfCardsLeft()>0; i++){
+				setCard(i, draw());
+			}
+		}
+		changedFrom=firstGap;
+		changedTo=Math.max(i, lastCard);
+		for(; i<lastCard; i++){
+			setCard(i, PackedState.EMPTY);
 		}
 	}
 	
 	//checks if cards should be cleared from tableau
 	public boolean removeCards(Coordinate rowscols, Coordinate rowscols2){
+		return removeCards(geometry.pos(rowscols), geometry.pos(rowscols2));
+	}
+	
+	//same as above using tableau positions (row*cols+col)
+	public boolean removeCards(int pos, int pos2){
+		int card=PackedState.get(monteCarlo, pos);
+		int card2=PackedState.get(monteCarlo, pos2);
+		//a card can't be paired with an empty space
+		if(card==PackedState.EMPTY || card2==PackedState.EMPTY){
+			return false;
+		}
 		//check similar ranks
-		if(monteCarlo[rowscols.getPos()].getRank()
-				==monteCarlo[rowscols2.getPos()].getRank()){
-			//ensure they're within 1 row and or 1 column away
-			if(Math.abs(rowscols.getColumn()-rowscols2.getColumn())==1 
-					|| rowscols.getColumn()-rowscols2.getColumn()==0){
-				if(Math.abs(rowscols.getRow()-rowscols2.getRow())==1 
-						|| rowscols.getRow()-rowscols2.getRow()==0){
-					monteCarlo[rowscols.getPos()] = null;
-					monteCarlo[rowscols2.getPos()] = null;
-					cardsMissing+=2;
-					cardsRemoved+=2;
-					return true;
+		if(PackedState.rankOf(card)==PackedState.rankOf(card2)){
+			//ensure they're within 1 row and or 1 column away, and not the same cell
+			if(geometry.isNeighbour(pos, pos2)){
+				if(recording){
+					journal.addPair(Math.min(pos, pos2), Math.max(pos, pos2), 
+							pos<pos2 ? card : card2, pos<pos2 ? card2 : card);
 				}
+				setPair(pos, pos2, PackedState.EMPTY, PackedState.EMPTY);
+				return true;
 			}
 		}
 		return false;
 	}
 	
+	//puts cards (or EMPTY) into two cells and updates what depends on them
+	private void setPair(int pos, int pos2, int card, int card2){
+		setCard(pos, card);
+		setCard(pos2, card2);
+		moves.update(monteCarlo, pos);
+		moves.update(monteCarlo, pos2);
+		changedFrom=Math.min(pos, pos2);
+		changedTo=Math.max(pos, pos2)+1;
+	}
+	
+	//every change to a cell goes through here so the hash stays current
+	private void setCard(int pos, int card){
+		int old=PackedState.get(monteCarlo, pos);
+		if(old!=card){
+			hash^=zobrist.cell(pos, old)^zobrist.cell(pos, card);
+			PackedState.set(monteCarlo, pos, card);
+			if(old==PackedState.EMPTY){
+				cardCount++;
+			} else if(card==PackedState.EMPTY){
+				cardCount--;
+			}
+		}
+	}
+	
+	//takes the next card off the deck, moving the cursor's part of the hash along
+	private int draw(){
+		hash^=zobrist.cursor(deck.getPosition())^zobrist.cursor(deck.getPosition()+1);
+		return deck.drawIndex();
+	}
+	
+	//puts the last card drawn back on the deck
+	private void undraw(){
+		hash^=zobrist.cursor(deck.getPosition())^zobrist.cursor(deck.getPosition()-1);
+		deck.setPosition(deck.getPosition()-1);
+	}
+	
+	//true if consolidating would change the tableau
+	public boolean canConsolidate(){
+		if(cardCount==rows*cols){
+			return false;
+		}
+		//with a gap somewhere, anything left to deal settles it without a scan
+		if(numberOfCardsLeft()>0){
+			return true;
+		}
+		boolean gap=false;
+		for(int i=0; i<rows*cols; i++){
+			if(PackedState.get(monteCarlo, i)==PackedState.EMPTY){
+				gap=true;
+			} else if(gap){
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	//plays a move encoded with the Move helpers, returns false if it isn't legal
+	public boolean makeMove(int move){
+		if(Move.isConsolidate(move)){
+			if(!canConsolidate()){
+				return false;
+			}
+			consolidate();
+			return true;
+		}
+		return removeCards(Move.first(move), Move.second(move));
+	}
+	
+	//card index at a tableau position, or PackedState.EMPTY
+	public int getCard(int pos){
+		return PackedState.get(monteCarlo, pos);
+	}
+	
 	//getter for cards left total
 	public int numberOfCardsLeft(){
-		return (deck.getSize()-rows*cols-cardsDealt);
-		//total cards-initial cards-dealt cards
+		return deck.cardsLeft();
 	}
 	
 	//getter for suit at certain position
 	public Suit getSuit(Coordinate rowscols){
-		if(monteCarlo[rowscols.getPos()]==null){
+		int card=PackedState.get(monteCarlo, geometry.pos(rowscols));
+		if(card==PackedState.EMPTY){
 			return null;
 		}
-		return monteCarlo[rowscols.getPos()].getSuit();
+		return Card.fromIndex(card).getSuit();
 	}
 	
 	//rank getter
 	public Rank getRank(Coordinate rowscols){
-		if(monteCarlo[rowscols.getPos()]==null){
+		int card=PackedState.get(monteCarlo, geometry.pos(rowscols));
+		if(card==PackedState.EMPTY){
 			return null;
 		}
-		return monteCarlo[rowscols.getPos()].getRank();
+		return Card.fromIndex(card).getRank();
+	}
+	
+	//card at a certain position, or null if it's empty
+	public Card getCardAt(Coordinate rowscols){
+		int card=PackedState.get(monteCarlo, geometry.pos(rowscols));
+		if(card==PackedState.EMPTY){
+			return null;
+		}
+		return Card.fromIndex(card);
 	}
 	
 	//new game method with random seed
 	public void newGame(long gameSeed){
-		cardsRemoved=0;     //reset counters
-		cardsDealt=0;
 		rngSeed=gameSeed;
-		deck = new Deck();
-		deck.Shuffle(gameSeed);   //create new deck and shuffle
-		for(int i=0; i<monteCarlo.length; i++){
-			monteCarlo[i] = deck.drawCard();    //fill tableau to start game
+		deck.Shuffle(gameSeed);   //gather the deck and shuffle
+		dealTableau();
+	}
+	
+	//empty the tableau and fill it from the top of the deck to start game
+	private void dealTableau(){
+		deck.setPosition(0);
+		PackedState.clear(monteCarlo);
+		for(int i=0; i<rows*cols && deck.cardsLeft()>0; i++){
+			PackedState.set(monteCarlo, i, deck.drawIndex());
 		}
+		cardCount=deck.getPosition();
+		moves.rebuild(monteCarlo);
+		hash=zobrist.hash(monteCarlo, rows*cols, deck.getPosition());
+		journal.clear();
+		changedFrom=0;
+		changedTo=rows*cols;
 	}
 	
 	public int getScore(){
-		return cardsRemoved;
+		return deck.getPosition()-cardCount;
+	}
+	
+	//number of cards currently on the tableau
+	private int countCards(){
+		int count=0;
+		for(int i=0; i<rows*cols; i++){
+			if(PackedState.get(monteCarlo, i)!=PackedState.EMPTY){
+				count++;
+			}
+		}
+		return count;
+	}
+	
+	//immutable snapshot of the current position
+	public PackedState getState(){
+		return new PackedState(rows, cols, monteCarlo.clone(), deck.getPosition(), hash, moves.save());
+	}
+	
+	//return to a position previously taken from this deal with getState, forgetting the undo history
+	public void setState(PackedState state){
+		if(state.getRows()!=rows || state.getColumns()!=cols){
+			throw new IllegalArgumentException("state is for a " + state.getRows() 
+					+ "x" + state.getColumns() + " tableau");
+		}
+		restore(state);
+		journal.clear();
+	}
+	
+	//takes back the last move, returns false if nothing has been played since the deal
+	public boolean undo(){
+		int at=journal.undo();
+		if(at<0){
+			return false;
+		}
+		if(journal.isPair(at)){
+			setPair(journal.pairLow(at), journal.pairHigh(at), journal.pairLowCard(at), journal.pairHighCard(at));
+		} else {
+			unconsolidate(at);
+		}
+		return true;
+	}
+	
+	//plays the last move undone again, returns false if there is none
+	public boolean redo(){
+		int at=journal.redo();
+		if(at<0){
+			return false;
+		}
+		if(journal.isPair(at)){
+			setPair(journal.pairLow(at), journal.pairHigh(at), PackedState.EMPTY, PackedState.EMPTY);
+		} else {
+			//a consolidate that dealt nothing did no more than a shift, whether or not it was one
+			compact(journal.dealt(at)>0);
+			moves.update(monteCarlo, changedFrom, changedTo);
+		}
+		return true;
+	}
+	
+	//undoes or redoes moves until move moves have been played, returns false if that many weren't recorded
+	public boolean jumpTo(int move){
+		if(move<0 || move>journal.getRecorded()){
+			return false;
+		}
+		int from=rows*cols;
+		int to=0;
+		while(journal.getPlayed()>move){
+			undo();
+			from=Math.min(from, changedFrom);
+			to=Math.max(to, changedTo);
+		}
+		while(journal.getPlayed()<move){
+			redo();
+			from=Math.min(from, changedFrom);
+			to=Math.max(to, changedTo);
+		}
+		changedFrom=Math.min(from, to);
+		changedTo=to;
+		return true;
+	}
+	
+	//puts back the cards a consolidate dealt and spreads the rest out over the cells they came from
+	private void unconsolidate(int at){
+		int cells=rows*cols;
+		int dealt=journal.dealt(at);
+		int firstGap=-1;
+		int kept=0;
+		int lastCard=0;
+		for(int pos=0; pos<cells; pos++){
+			if(!journal.wasEmpty(at, pos)){
+				kept++;
+				lastCard=pos+1;
+			} else if(firstGap<0){
+				firstGap=pos;
+			}
+		}
+		if(firstGap<0){
+			changedFrom=changedTo=0;
+			return;
+		}
+		for(int i=kept+dealt-1; i>=kept; i--){
+			setCard(i, PackedState.EMPTY);
+			undraw();
+		}
+		//working down, a card is always read before its cell is written over; cells before the first gap never moved
+		int next=kept-1;
+		for(int pos=lastCard-1; pos>=firstGap; pos--){
+			if(journal.wasEmpty(at, pos)){
+				setCard(pos, PackedState.EMPTY);
+			} else {
+				setCard(pos, PackedState.get(monteCarlo, next--));
+			}
+		}
+		changedFrom=firstGap;
+		changedTo=Math.max(kept+dealt, lastCard);
+		moves.update(monteCarlo, changedFrom, changedTo);
+	}
+	
+	//number of longs saveTo writes
+	int savedSize(){
+		return monteCarlo.length+moves.savedSize()+3;
+	}
+	
+	//copies the position into out at offset without allocating, for searches that back up by copying
+	void saveTo(long[] out, int offset){
+		System.arraycopy(monteCarlo, 0, out, offset, monteCarlo.length);
+		offset+=monteCarlo.length;
+		moves.save(out, offset);
+		offset+=moves.savedSize();
+		out[offset]=deck.getPosition();
+		out[offset+1]=hash;
+		out[offset+2]=cardCount;
+	}
+	
+	//returns to a position written by saveTo during the same deal, leaving the journal alone
+	void restoreFrom(long[] in, int offset){
+		System.arraycopy(in, offset, monteCarlo, 0, monteCarlo.length);
+		offset+=monteCarlo.length;
+		moves.restoreSaved(in, offset);
+		offset+=moves.savedSize();
+		deck.setPosition((int) in[offset]);
+		hash=in[offset+1];
+		cardCount=(int) in[offset+2];
+		changedFrom=0;
+		changedTo=rows*cols;
+	}
+	
+	//turns undo history on or off, either way forgetting what was there
+	void setRecording(boolean recording){
+		this.recording=recording;
+		journal.clear();
+	}
+	
+	//makes this game a copy of another of the same size, without its undo history
+	public void copyFrom(Game other){
+		if(other.rows!=rows || other.cols!=cols || other.deck.getSize()!=deck.getSize()){
+			throw new IllegalArgumentException("can't copy a " + other.rows + "x" + other.cols + " game of " 
+					+ other.deck.getSize() + " cards");
+		}
+		rngSeed=other.rngSeed;
+		System.arraycopy(other.monteCarlo, 0, monteCarlo, 0, monteCarlo.length);
+		deck.copyFrom(other.deck);
+		moves.copyFrom(other.moves);
+		hash=other.hash;
+		cardCount=other.cardCount;
+		journal.clear();
+		changedFrom=0;
+		changedTo=rows*cols;
+	}
+	
+	//first tableau position the last change (move, undo or deal) could have touched
+	public int getChangedFrom(){
+		return changedFrom;
+	}
+	
+	//one past the last tableau position the last change could have touched, equal to getChangedFrom() if none did
+	public int getChangedTo(){
+		return changedTo;
+	}
+	
+	//number of moves that can be undone
+	public int getMovesPlayed(){
+		return journal.getPlayed();
+	}
+	
+	//number of moves played or undone since the deal, the furthest jumpTo can go
+	public int getMovesRecorded(){
+		return journal.getRecorded();
+	}
+	
+	//puts the tableau, deck and move index back to a snapshot
+	private void restore(PackedState state){
+		state.copyWords(monteCarlo);
+		cardCount=countCards();
+		deck.setPosition(state.getCursor());
+		hash=state.getHash();
+		//snapshots taken from a game carry its move index, anything else is regenerated
+		if(state.getMoveBits()!=null){
+			moves.restore(state.getMoveBits());
+		} else {
+			moves.rebuild(monteCarlo);
+		}
+		changedFrom=0;
+		changedTo=rows*cols;
+	}
+	
+	//64-bit Zobrist hash of the tableau and deck cursor, equal positions of a deal have equal hashes
+	public long getHash(){
+		return hash;
+	}
+	
+	//the packed tableau itself, callers must not change it
+	long[] getTableauWords(){
+		return monteCarlo;
+	}
+	
+	//number of cards drawn from the deck so far
+	int getCursor(){
+		return deck.getPosition();
+	}
+	
+	//number of legal pair moves on the tableau
+	public int getMoveCount(){
+		return moves.size();
+	}
+	
+	//writes the legal pair moves into out (at least getMoveCount() long), returns how many
+	public int getMoves(int[] out){
+		return moves.getMoves(out, 0);
+	}
+	
+	//same as above, writing from out[offset] onwards
+	public int getMoves(int[] out, int offset){
+		return moves.getMoves(out, offset);
+	}
+	
+	//the legal pair moves as Move encodings
+	public int[] getMoves(){
+		return moves.getMoves();
+	}
+	
+	//game number currently being played
+	public long getGameNumber(){
+		return rngSeed;
+	}
+	
+	//accessor for rows
+	public int getRows(){
+		return rows;
+	}
+	
+	//accessor for columns
+	public int getColumns(){
+		return cols;
+	}
+	
+	//shape of the tableau, shared by every game of this size
+	public Geometry getGeometry(){
+		return geometry;
 	}
 	
 	//explains rules of the game to user
@@ -132,46 +541,28 @@ public class Game {
 	
 	//replays same game using same rng seed
 	public void replay(){
-		cardsRemoved=0;
-		cardsDealt=0;
-		deck = new Deck();
-		deck.Shuffle(rngSeed);
-		for(int i=0; i<monteCarlo.length; i++){
-			monteCarlo[i] = deck.drawCard();
-		}
+		//the deck is still in rngSeed's order, so just deal it again
+		dealTableau();
 	}
 	
 	
+	//returns a legal pair of cards to remove, or null if there isn't one
 	public Coordinate[] getHint(){
-		for(int i=0; i<monteCarlo.length; i++){
-			for(int j=0; j<monteCarlo.length; j++){
-				if(j==i+cols || j==i-cols || (j==i-1 && j%cols!=cols-1) || 
-						(j==i+1 && j%cols!=0) ||(j==i+4 && i%cols!=0) || (j==i-4 && i%(cols-1)!=0)
-						|| (j==i+6 && i%(cols-1)!=0) || (j==i-6 && i%cols!=0)){
-					if(monteCarlo[j]!=null && monteCarlo[i]!=null){
-						if(monteCarlo[j].getRank()==monteCarlo[i].getRank()){
-							int jRow = j/cols;
-							int jCol = j%cols;
-							int iRow = i/cols;
-							int iCol = i%cols;
-							Coordinate jCoord = new Coordinate(jRow, jCol);
-							Coordinate iCoord = new Coordinate(iRow, iCol);
-							Coordinate[] hint= new Coordinate[2];
-							hint[0] = jCoord;
-							hint[1] = iCoord;
-							return hint;
-						}
-					}
-				}
-			}
-		}
-		return null;
-		//Coordinate[] none= new Coordinate[1];
-		//return none;
+		return geometry.toCoordinates(moves.first());
+	}
+	
+	//number of 52-card decks in the shoe
+	public int getDecks(){
+		return deck.getDecks();
+	}
+	
+	//number of cards in the deck, the score needed to win
+	public int getDeckSize(){
+		return deck.getSize();
 	}
 	
 	public boolean isWin(){
-		if(getScore()==52){
+		if(getScore()==deck.getSize()){
 			return true;
 		}
 		return false;
@@ -188,5 +579,19 @@ public class Game {
 		System.out.println(test1.numberOfCardsLeft()); //expecting 3 here
 		System.out.println(test.numberOfCardsLeft()); //expecting 43 here
 		System.out.println(test2.getHelpText()); //expecting help text output
+		Coordinate[] hint = test1.getHint();
+		if(hint!=null){
+			//expecting true: a 7x7 hint is a pair of neighbours holding the same rank
+			System.out.println(test1.getGeometry().isNeighbour(hint[0].getPos(), hint[1].getPos())
+					&& test1.getRank(hint[0])==test1.getRank(hint[1]));
+		}
+		//a 10x10 tableau dealt from a two deck shoe, played out always taking the first pair
+		Game big = new Game(10, 10, 2);
+		big.newGame(12345);
+		System.out.println(big.numberOfCardsLeft()); //expecting 4 here
+		while(big.getMoveCount()>0 || big.canConsolidate()){
+			big.makeMove(big.getMoveCount()>0 ? big.getMoves()[0] : Move.CONSOLIDATE);
+		}
+		System.out.println(big.cardCount==big.countCards()); //expecting true here
 	}
 }
@@ -0,0 +1,134 @@
+package proj3;
+
+/**
+ * The rules of Monte Carlo Solitaire without any user interface. Implementations must not depend on AWT or Swing so
+ * that they can be driven from batch and server processes (see <code>Survey</code> and <code>Solver</code>) without
+ * loading a toolkit; <code>Project3</code> is just one client.
+ *
+ * Tableau positions are <code>row * columns + column</code> and moves are the <code>int</code> encodings built by
+ * {@link Move}.
+ *
+ * @see Game
+ */
+public interface GameEngine {
+
+	/**
+	 * Shuffles and deals the given game number, discarding the current game and its undo history
+	 *
+	 * @param gameNumber
+	 *            the game number, the same number always deals the same cards
+	 */
+	void newGame(long gameNumber);
+
+	/**
+	 * Returns the number of rows in the tableau
+	 *
+	 * @return the number of rows
+	 */
+	int getRows();
+
+	/**
+	 * Returns the number of columns in the tableau
+	 *
+	 * @return the number of columns
+	 */
+	int getColumns();
+
+	/**
+	 * Returns the card at a tableau position
+	 *
+	 * @param pos
+	 *            the tableau position
+	 * @return the card's index (see <code>Card.getIndex()</code>), or <code>PackedState.EMPTY</code>
+	 */
+	int getCard(int pos);
+
+	/**
+	 * Returns the number of legal pair removals
+	 *
+	 * @return the number of moves {@link #getMoves(int[])} will write
+	 */
+	int getMoveCount();
+
+	/**
+	 * Writes every legal pair removal into <code>out</code>. Consolidating is legal whenever
+	 * {@link #canConsolidate()} is.
+	 *
+	 * @param out
+	 *            receives the moves, must hold at least {@link #getMoveCount()} entries
+	 * @return the number of moves written
+	 */
+	int getMoves(int[] out);
+
+	/**
+	 * Returns whether consolidating would change anything
+	 *
+	 * @return <code>true</code> if there is a gap to close or fill
+	 */
+	boolean canConsolidate();
+
+	/**
+	 * Plays a move if it is legal
+	 *
+	 * @param move
+	 *            a pair from {@link Move#pair(int, int)} or {@link Move#CONSOLIDATE}
+	 * @return <code>true</code> if the move was legal and played
+	 */
+	boolean makeMove(int move);
+
+	/**
+	 * Closes the gaps in the tableau and deals new cards into the end of it
+	 */
+	void consolidate();
+
+	/**
+	 * Takes back the last move played since the game was dealt
+	 *
+	 * @return <code>false</code> if there was nothing to undo
+	 */
+	boolean undo();
+
+	/**
+	 * Plays again the last move taken back by {@link #undo()}, as long as no other move has been played since
+	 *
+	 * @return <code>false</code> if there was nothing to redo
+	 */
+	boolean redo();
+
+	/**
+	 * Undoes or redoes moves until the given number of moves since the deal have been played
+	 *
+	 * @param move
+	 *            the number of moves to leave played, from 0 (the deal) to the number played or undone
+	 * @return <code>false</code> if <code>move</code> is out of range
+	 */
+	boolean jumpTo(int move);
+
+	/**
+	 * Returns the number of cards removed so far
+	 *
+	 * @return the score
+	 */
+	int getScore();
+
+	/**
+	 * Returns the number of cards still in the deck
+	 *
+	 * @return the cards left to deal
+	 */
+	int numberOfCardsLeft();
+
+	/**
+	 * Returns whether every card has been removed
+	 *
+	 * @return <code>true</code> if the game is won
+	 */
+	boolean isWin();
+
+	/**
+	 * Returns a hash of the current position, equal positions of the same deal hash the same
+	 *
+	 * @return the 64-bit position hash
+	 */
+	long getHash();
+}
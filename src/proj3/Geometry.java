@@ -0,0 +1,212 @@
+package proj3;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Shape of a rows x cols tableau, worked out once per size and shared by every game, move index and view of that
+ * size. Cells are numbered <code>row * cols + column</code>; the geometry holds each cell's row, column, shared
+ * {@link Coordinate} and neighbours (beside, above/below or diagonal), and numbers every unordered pair of neighbours
+ * once, in order of the pair's lower cell. Nothing is computed per query.
+ *
+ * Geometries are immutable and are obtained with {@link #of(int, int)}.
+ */
+public final class Geometry {
+
+	//one geometry per size, keyed by rows << 32 | cols
+	private static final ConcurrentMap<Long, Geometry> CACHE = new ConcurrentHashMap<Long, Geometry>();
+
+	private final int rows;
+	private final int cols;
+	private final int cells;
+	private final int[] rowOf;
+	private final int[] colOf;
+	private final Coordinate[] coordinates;
+	//every neighbour of each cell, ascending
+	private final int[][] neighbours;
+	//the two cells of each pair, lower first, and its Move encoding
+	private final int[] pairLow;
+	private final int[] pairHigh;
+	private final int[] pairMove;
+	//pairs touching each cell
+	private final int[][] cellPairs;
+	//number of the first pair whose lower cell is at or after each cell
+	private final int[] firstPair;
+
+	//builds the tables for a rows x cols tableau
+	private Geometry(int rows, int cols) {
+		this.rows = rows;
+		this.cols = cols;
+		cells = rows * cols;
+		rowOf = new int[cells];
+		colOf = new int[cells];
+		coordinates = new Coordinate[cells];
+		neighbours = new int[cells][];
+		for (int pos = 0; pos < cells; pos++) {
+			rowOf[pos] = pos / cols;
+			colOf[pos] = pos % cols;
+			coordinates[pos] = new Coordinate(rowOf[pos], colOf[pos], cols);
+		}
+		int[] scratch = new int[8];
+		for (int pos = 0; pos < cells; pos++) {
+			int n = 0;
+			for (int r = rowOf[pos] - 1; r <= rowOf[pos] + 1; r++) {
+				for (int c = colOf[pos] - 1; c <= colOf[pos] + 1; c++) {
+					if (r >= 0 && r < rows && c >= 0 && c < cols && (r != rowOf[pos] || c != colOf[pos])) {
+						scratch[n++] = r * cols + c;
+					}
+				}
+			}
+			neighbours[pos] = new int[n];
+			System.arraycopy(scratch, 0, neighbours[pos], 0, n);
+		}
+		// each pair is numbered from its lower cell: the neighbours after it are right, then the row below
+		firstPair = new int[cells + 1];
+		int pairs = 0;
+		for (int pos = 0; pos < cells; pos++) {
+			firstPair[pos] = pairs;
+			for (int other : neighbours[pos]) {
+				if (other > pos) {
+					pairs++;
+				}
+			}
+		}
+		firstPair[cells] = pairs;
+		pairLow = new int[pairs];
+		pairHigh = new int[pairs];
+		pairMove = new int[pairs];
+		cellPairs = new int[cells][];
+		int[] touching = new int[cells];
+		int p = 0;
+		for (int pos = 0; pos < cells; pos++) {
+			cellPairs[pos] = new int[neighbours[pos].length];
+			for (int other : neighbours[pos]) {
+				if (other > pos) {
+					pairLow[p] = pos;
+					pairHigh[p] = other;
+					pairMove[p] = Move.pair(pos, other);
+					p++;
+				}
+			}
+		}
+		for (p = 0; p < pairs; p++) {
+			cellPairs[pairLow[p]][touching[pairLow[p]]++] = p;
+			cellPairs[pairHigh[p]][touching[pairHigh[p]]++] = p;
+		}
+	}
+
+	//the shared geometry of a rows x cols tableau
+	public static Geometry of(int rows, int cols) {
+		if (rows < 1 || cols < 1) {
+			throw new IllegalArgumentException("a tableau needs at least one row and column, not " + rows + "x" + cols);
+		}
+		Long key = (long) rows << 32 | cols;
+		Geometry geometry = CACHE.get(key);
+		if (geometry == null) {
+			Geometry built = new Geometry(rows, cols);
+			geometry = CACHE.putIfAbsent(key, built);
+			if (geometry == null) {
+				geometry = built;
+			}
+		}
+		return geometry;
+	}
+
+	//accessor for rows
+	public int getRows() {
+		return rows;
+	}
+
+	//accessor for columns
+	public int getColumns() {
+		return cols;
+	}
+
+	//number of cells on the tableau
+	public int getCells() {
+		return cells;
+	}
+
+	//tableau position of a row and column
+	public int pos(int row, int col) {
+		return row * cols + col;
+	}
+
+	//tableau position of a coordinate
+	public int pos(Coordinate coordinate) {
+		return coordinate.getRow() * cols + coordinate.getColumn();
+	}
+
+	//row of a tableau position
+	public int row(int pos) {
+		return rowOf[pos];
+	}
+
+	//column of a tableau position
+	public int column(int pos) {
+		return colOf[pos];
+	}
+
+	//the shared coordinate of a tableau position
+	public Coordinate coordinate(int pos) {
+		return coordinates[pos];
+	}
+
+	//the shared coordinate of a row and column
+	public Coordinate coordinate(int row, int col) {
+		return coordinates[row * cols + col];
+	}
+
+	//true if the position is on the tableau
+	public boolean contains(int pos) {
+		return pos >= 0 && pos < cells;
+	}
+
+	//true if two different positions are beside, above/below or diagonal to each other
+	public boolean isNeighbour(int pos, int pos2) {
+		return pos != pos2 && Math.abs(rowOf[pos] - rowOf[pos2]) <= 1 && Math.abs(colOf[pos] - colOf[pos2]) <= 1;
+	}
+
+	//the neighbours of a position, ascending; callers must not change the array
+	public int[] neighbours(int pos) {
+		return neighbours[pos];
+	}
+
+	//the two coordinates a pair move removes, or null for a consolidate or no move
+	public Coordinate[] toCoordinates(int move) {
+		if (move == Move.NONE || Move.isConsolidate(move)) {
+			return null;
+		}
+		return new Coordinate[] { coordinates[Move.first(move)], coordinates[Move.second(move)] };
+	}
+
+	//number of pairs of neighbouring cells
+	int pairCount() {
+		return pairMove.length;
+	}
+
+	//lower cell of pair p
+	int pairLow(int p) {
+		return pairLow[p];
+	}
+
+	//higher cell of pair p
+	int pairHigh(int p) {
+		return pairHigh[p];
+	}
+
+	//Move encoding of pair p
+	int pairMove(int p) {
+		return pairMove[p];
+	}
+
+	//the pairs touching a cell; callers must not change the array
+	int[] cellPairs(int pos) {
+		return cellPairs[pos];
+	}
+
+	//number of the first pair whose lower cell is at or after pos, pos may be getCells()
+	int firstPair(int pos) {
+		return firstPair[pos];
+	}
+}
@@ -0,0 +1,131 @@
+package proj3;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import javax.swing.SwingUtilities;
+
+/**
+ * Works out hints on a background thread so the event thread never waits for a search. Each request copies the game,
+ * so the player can carry on while the copy is searched; the search runs in short slices and gives up as soon as a
+ * newer request or {@link #cancel()} makes it stale. Every improvement is passed to the listener as it is found, on
+ * the search thread, and only the final answer is posted to the event thread.
+ *
+ * Requests and cancels are expected from the event thread.
+ */
+public class HintService {
+
+	/**
+	 * How long to search for a hint when asked from the menu, in milliseconds
+	 */
+	public static final long DEFAULT_BUDGET_MILLIS = 500;
+
+	/**
+	 * Length of one search slice; staleness is checked and improvements reported between slices
+	 */
+	private static final long SLICE_NANOS = 10000000L;
+
+	/**
+	 * Receives the answers to one hint request
+	 */
+	public interface Listener {
+
+		/**
+		 * A better hint has been found; called on the search thread, so must not touch Swing components
+		 *
+		 * @param hint
+		 *            the two cells to remove
+		 * @param playouts
+		 *            the playouts run so far
+		 */
+		void improved(Coordinate[] hint, int playouts);
+
+		/**
+		 * The search has finished and the board has not changed since the request; called on the event thread
+		 *
+		 * @param hint
+		 *            the two cells to remove, or <code>null</code> if there are no pairs
+		 */
+		void finished(Coordinate[] hint);
+	}
+
+	private final MonteCarloAdvisor advisor;
+	private final ExecutorService executor;
+	//bumped by every request and cancel, a search only reports while its generation is current
+	private volatile long generation;
+	private Future<?> running;
+
+	//constructor, searching rows x cols games
+	public HintService(int rows, int cols) {
+		advisor = new MonteCarloAdvisor(rows, cols, System.nanoTime());
+		executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			public Thread newThread(Runnable task) {
+				Thread thread = new Thread(task, "hint-search");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	//starts searching a copy of game for up to budgetMillis, dropping any earlier request
+	public void request(Game game, final long budgetMillis, final Listener listener) {
+		cancel();
+		final long mine = generation;
+		final Game position = new Game(game.getRows(), game.getColumns());
+		position.setRecording(false);
+		position.copyFrom(game);
+		running = executor.submit(new Runnable() {
+			public void run() {
+				search(position, budgetMillis * 1000000L, mine, listener);
+			}
+		});
+	}
+
+	//makes any request in progress stale, call whenever the board changes
+	public void cancel() {
+		generation++;
+		if (running != null) {
+			running.cancel(false);
+			running = null;
+		}
+	}
+
+	//stops the search thread
+	public void shutdown() {
+		cancel();
+		executor.shutdownNow();
+	}
+
+	//runs on the search thread
+	private void search(Game position, long budgetNanos, final long mine, final Listener listener) {
+		if (generation != mine) {
+			return;
+		}
+		long deadline = System.nanoTime() + budgetNanos;
+		advisor.start(position);
+		int reported = advisor.bestMove(false);
+		// with no pairs, or only one, there is nothing to choose between
+		while (position.getMoveCount() > 1 && System.nanoTime() < deadline) {
+			advisor.think(Math.min(SLICE_NANOS, deadline - System.nanoTime()), Integer.MAX_VALUE);
+			if (generation != mine) {
+				return;
+			}
+			int best = advisor.bestMove(false);
+			if (best != reported) {
+				reported = best;
+				listener.improved(position.getGeometry().toCoordinates(best), advisor.getPlayouts());
+			}
+		}
+		final Coordinate[] hint = position.getGeometry().toCoordinates(reported);
+		SwingUtilities.invokeLater(new Runnable() {
+			public void run() {
+				// the board may have changed while this was queued
+				if (generation == mine) {
+					listener.finished(hint);
+				}
+			}
+		});
+	}
+}
@@ -0,0 +1,155 @@
+package proj3;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size histogram of non-negative <code>long</code> values in the style of HdrHistogram. Values below 32 get a
+ * bucket each; above that every power of two is split into 16 equal buckets, so any value is placed within about 6%
+ * of itself and the whole range of <code>long</code> fits in under a thousand counters, however many values are
+ * recorded.
+ *
+ * Recording is lock free: any number of threads may record at once, and reads may happen at the same time; a read
+ * while values are being recorded sees some of them and not others.
+ */
+public final class Histogram {
+
+	//values below EXACT are counted exactly
+	private static final int EXACT = 32;
+	//buckets each power of two above EXACT is split into
+	private static final int SPLIT = EXACT / 2;
+	//number of bits of precision kept, log2(SPLIT)
+	private static final int SPLIT_BITS = 4;
+	//buckets needed for every long: the exact ones, then SPLIT for each power of two from 2^5 to 2^62
+	private static final int BUCKETS = EXACT + (63 - SPLIT_BITS - 1) * SPLIT;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final AtomicLong total = new AtomicLong();
+	private final AtomicLong sum = new AtomicLong();
+	private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+	private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+
+	//bucket a value falls in
+	static int bucketOf(long value) {
+		if (value < EXACT) {
+			return (int) value;
+		}
+		// the top SPLIT_BITS+1 bits of the value pick the bucket within its power of two
+		int shift = 63 - Long.numberOfLeadingZeros(value) - SPLIT_BITS;
+		return EXACT + (shift - 1) * SPLIT + (int) (value >>> shift) - SPLIT;
+	}
+
+	//smallest value in a bucket
+	static long lowestIn(int bucket) {
+		if (bucket < EXACT) {
+			return bucket;
+		}
+		int shift = (bucket - EXACT) / SPLIT + 1;
+		return (long) (SPLIT + (bucket - EXACT) % SPLIT) << shift;
+	}
+
+	//largest value in a bucket
+	static long highestIn(int bucket) {
+		return bucket + 1 < BUCKETS ? lowestIn(bucket + 1) - 1 : Long.MAX_VALUE;
+	}
+
+	//counts one value, negative values are counted as 0
+	public void record(long value) {
+		if (value < 0) {
+			value = 0;
+		}
+		counts.incrementAndGet(bucketOf(value));
+		total.incrementAndGet();
+		sum.addAndGet(value);
+		long seen = min.get();
+		while (value < seen && !min.compareAndSet(seen, value)) {
+			seen = min.get();
+		}
+		seen = max.get();
+		while (value > seen && !max.compareAndSet(seen, value)) {
+			seen = max.get();
+		}
+	}
+
+	//number of values recorded
+	public long getCount() {
+		return total.get();
+	}
+
+	//smallest value recorded, 0 if there are none
+	public long getMin() {
+		return total.get() == 0 ? 0 : min.get();
+	}
+
+	//largest value recorded, 0 if there are none
+	public long getMax() {
+		return total.get() == 0 ? 0 : max.get();
+	}
+
+	//mean of the values recorded, 0 if there are none
+	public double getMean() {
+		long count = total.get();
+		return count == 0 ? 0 : (double) sum.get() / count;
+	}
+
+	//value at or below which the given fraction of recorded values fall, to the bucket's precision
+	public long getPercentile(double fraction) {
+		long count = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			count += counts.get(i);
+		}
+		if (count == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(fraction * count));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts.get(i);
+			if (seen >= rank) {
+				// report the top of the bucket, but never more than the largest value actually seen
+				return Math.min(highestIn(i), getMax());
+			}
+		}
+		return getMax();
+	}
+
+	//number of buckets, for walking them with getBucketCount
+	int buckets() {
+		return BUCKETS;
+	}
+
+	//number of values recorded in a bucket
+	long getBucketCount(int bucket) {
+		return counts.get(bucket);
+	}
+
+	//unit testing
+	public static void main(String[] args) {
+		System.out.println(bucketOf(31) + " " + bucketOf(32) + " " + bucketOf(33) + " " + bucketOf(34));
+		//expecting 31 32 32 33 here: 31 is the last exact value, then buckets hold two values each
+		System.out.println(lowestIn(32) + " " + highestIn(32) + " " + lowestIn(33)); //expecting 32 33 34 here
+		System.out.println(bucketOf(Long.MAX_VALUE) == BUCKETS - 1); //expecting true here
+		System.out.println(highestIn(BUCKETS - 1) == Long.MAX_VALUE); //expecting true here
+		boolean contiguous = true;
+		for (int i = 1; i < BUCKETS; i++) {
+			contiguous &= lowestIn(i) == highestIn(i - 1) + 1 && bucketOf(lowestIn(i)) == i && bucketOf(highestIn(i)) == i;
+		}
+		System.out.println(contiguous); //expecting true here: the buckets tile every long with no gaps
+
+		Histogram histogram = new Histogram();
+		System.out.println(histogram.getPercentile(0.5) + " " + histogram.getMin() + " " + histogram.getMax());
+		//expecting 0 0 0 here
+		histogram.record(31);
+		histogram.record(32);
+		histogram.record(33);
+		histogram.record(Long.MAX_VALUE);
+		System.out.println(histogram.getCount() + " " + histogram.getMin()); //expecting 4 31 here
+		System.out.println(histogram.getMax() == Long.MAX_VALUE); //expecting true here
+		System.out.println(histogram.getPercentile(0.25)); //expecting 31 here
+		System.out.println(histogram.getPercentile(0.5) + " " + histogram.getPercentile(0.75));
+		//expecting 33 33 here: 32 and 33 share a bucket, reported by its top
+		System.out.println(histogram.getPercentile(1.0) == Long.MAX_VALUE); //expecting true here
+		histogram.record(-5);
+		System.out.println(histogram.getMin() + " " + histogram.getBucketCount(0)); //expecting 0 1 here
+	}
+}
@@ -0,0 +1,275 @@
+package proj3;
+
+/**
+ * Hint engine that lives up to the game's name: Monte Carlo Tree Search over the current position. Each iteration
+ * walks down the search tree choosing moves by UCT, adds one new move to the tree, plays random moves from there to
+ * the end of the game and feeds the result back up the path. When the time or playout budget runs out the most
+ * visited move at the root is the recommendation.
+ *
+ * Playouts run on a scratch <code>Game</code> that is overwritten with {@link Game#copyFrom(Game)} and has its undo
+ * history switched off, so the playout loop itself allocates nothing; only new tree nodes do. An advisor is not
+ * thread safe.
+ *
+ * A search can also be run in slices: {@link #start(Game)} fixes the position, each {@link #think(long, int)} adds
+ * iterations to the same tree and {@link #bestMove(boolean)} reads the current answer in between.
+ */
+public class MonteCarloAdvisor {
+
+	/**
+	 * Default thinking time for a hint, in milliseconds
+	 */
+	public static final long DEFAULT_BUDGET_MILLIS = 50;
+
+	/**
+	 * Time budget for searches bounded only by their number of playouts
+	 */
+	public static final long NO_TIME_LIMIT = Long.MAX_VALUE;
+
+	/**
+	 * UCT exploration constant
+	 */
+	private static final double EXPLORATION = 0.7;
+
+	/**
+	 * Node of the search tree, one per position reached by a distinct line from the root
+	 */
+	private static final class Node {
+		final int move;
+		//moves from this position, the first expanded of them already have children
+		final int[] moves;
+		final Node[] children;
+		int expanded;
+		int visits;
+		double reward;
+
+		Node(int move, Game game) {
+			this.move = move;
+			int count = game.getMoveCount();
+			boolean consolidate = game.canConsolidate();
+			moves = new int[count + (consolidate ? 1 : 0)];
+			game.getMoves(moves);
+			if (consolidate) {
+				moves[count] = Move.CONSOLIDATE;
+			}
+			children = new Node[moves.length];
+		}
+	}
+
+	private final Game scratch;
+	//position the current search is from, copied so the caller's game can move on
+	private final Game origin;
+	//root of the current search, null before the first start
+	private Node root;
+	//nodes on the path of the current iteration
+	private Node[] path = new Node[128];
+	private int[] playoutMoves;
+	private long random;
+
+	//constructor for the standard 5x5 tableau
+	public MonteCarloAdvisor() {
+		this(5, 5, System.nanoTime());
+	}
+
+	//constructor, the seed makes the advice repeatable for a given playout budget
+	public MonteCarloAdvisor(int rows, int cols, long seed) {
+		scratch = new Game(rows, cols);
+		scratch.setRecording(false);
+		origin = new Game(rows, cols);
+		origin.setRecording(false);
+		playoutMoves = new int[new MoveIndex(rows, cols).capacity()];
+		random = seed == 0 ? 1 : seed;
+	}
+
+	//restarts the playout random numbers, so a fixed playout budget gives the same advice again
+	public void reseed(long seed) {
+		random = seed == 0 ? 1 : seed;
+	}
+
+	//coordinates of the best pair to remove within the default budget, or null if there are no pairs
+	public Coordinate[] getHint(Game game) {
+		return getHint(game, DEFAULT_BUDGET_MILLIS);
+	}
+
+	//coordinates of the best pair to remove after thinking for budgetMillis, or null if there are no pairs
+	public Coordinate[] getHint(Game game, long budgetMillis) {
+		start(game);
+		think(budgetMillis * 1000000L, Integer.MAX_VALUE);
+		return game.getGeometry().toCoordinates(bestMove(false));
+	}
+
+	//best move (possibly Move.CONSOLIDATE) within the budgets, or Move.NONE if the game is over
+	public int advise(Game game, long budgetNanos, int maxPlayouts) {
+		start(game);
+		think(budgetNanos, maxPlayouts);
+		return bestMove(true);
+	}
+
+	//starts a new search from game's position, dropping any earlier one
+	public void start(Game game) {
+		origin.copyFrom(game);
+		scratch.copyFrom(origin);
+		root = new Node(Move.NONE, scratch);
+	}
+
+	//best move of the current search so far, skipping consolidate unless allowed; Move.NONE if there is none
+	public int bestMove(boolean allowConsolidate) {
+		return best(root, allowConsolidate);
+	}
+
+	//playouts run so far in the current search
+	public int getPlayouts() {
+		return root.visits;
+	}
+
+	//most visited root move, skipping consolidate unless allowed
+	private int best(Node root, boolean allowConsolidate) {
+		int bestMove = Move.NONE;
+		int bestVisits = -1;
+		double bestReward = -1;
+		for (int i = 0; i < root.expanded; i++) {
+			Node child = root.children[i];
+			if (!allowConsolidate && Move.isConsolidate(child.move)) {
+				continue;
+			}
+			double mean = child.reward / child.visits;
+			if (child.visits > bestVisits || (child.visits == bestVisits && mean > bestReward)) {
+				bestMove = child.move;
+				bestVisits = child.visits;
+				bestReward = mean;
+			}
+		}
+		// budget ran out before every pair got a playout
+		if (bestMove == Move.NONE) {
+			for (int i = root.expanded; i < root.moves.length; i++) {
+				if (allowConsolidate || !Move.isConsolidate(root.moves[i])) {
+					return root.moves[i];
+				}
+			}
+		}
+		return bestMove;
+	}
+
+	//adds iterations to the current search until a budget runs out, returns the number run; a budgetNanos of
+	//NO_TIME_LIMIT runs exactly maxPlayouts
+	public int think(long budgetNanos, int maxPlayouts) {
+		// only differences of nanoTime mean anything, and start + budgetNanos could overflow
+		long start = System.nanoTime();
+		if (root.moves.length == 0) {
+			return 0;
+		}
+		int playouts;
+		for (playouts = 0; playouts < maxPlayouts; playouts++) {
+			// checking the clock costs more than an iteration near the end of a game, so only look every so often
+			if ((playouts & 15) == 0 && System.nanoTime() - start >= budgetNanos && playouts > 0) {
+				break;
+			}
+			scratch.copyFrom(origin);
+			int depth = 0;
+			Node node = root;
+			path[depth++] = node;
+			// selection: descend through fully expanded nodes
+			while (node.expanded == node.moves.length && node.moves.length > 0) {
+				node = select(node);
+				scratch.makeMove(node.move);
+				path = push(path, depth++, node);
+			}
+			// expansion: add one untried move, chosen at random
+			if (node.expanded < node.moves.length) {
+				int pick = node.expanded + nextInt(node.moves.length - node.expanded);
+				int move = node.moves[pick];
+				node.moves[pick] = node.moves[node.expanded];
+				node.moves[node.expanded] = move;
+				scratch.makeMove(move);
+				Node child = new Node(move, scratch);
+				node.children[node.expanded++] = child;
+				node = child;
+				path = push(path, depth++, node);
+			}
+			// simulation and backpropagation, a win scores 1 and anything else half the share of the deck cleared
+			playout();
+			double reward = scratch.isWin() ? 1.0 : 0.5 * scratch.getScore() / scratch.getDeckSize();
+			for (int i = 0; i < depth; i++) {
+				path[i].visits++;
+				path[i].reward += reward;
+			}
+		}
+		return playouts;
+	}
+
+	//child with the best UCT value
+	private Node select(Node node) {
+		double logVisits = Math.log(node.visits);
+		Node best = null;
+		double bestValue = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < node.expanded; i++) {
+			Node child = node.children[i];
+			double value = child.reward / child.visits + EXPLORATION * Math.sqrt(logVisits / child.visits);
+			if (value > bestValue) {
+				best = child;
+				bestValue = value;
+			}
+		}
+		return best;
+	}
+
+	//random moves on the scratch game until nothing more can be done
+	private void playout() {
+		while (true) {
+			int count = scratch.getMoves(playoutMoves);
+			boolean consolidate = scratch.canConsolidate();
+			if (count == 0 && !consolidate) {
+				return;
+			}
+			int pick = nextInt(count + (consolidate ? 1 : 0));
+			scratch.makeMove(pick == count ? Move.CONSOLIDATE : playoutMoves[pick]);
+		}
+	}
+
+	//stores node at path[depth], growing the path if needed
+	private static Node[] push(Node[] path, int depth, Node node) {
+		if (depth == path.length) {
+			Node[] bigger = new Node[path.length * 2];
+			System.arraycopy(path, 0, bigger, 0, path.length);
+			path = bigger;
+		}
+		path[depth] = node;
+		return path;
+	}
+
+	//xorshift64 random number in [0, bound)
+	private int nextInt(int bound) {
+		random ^= random << 13;
+		random ^= random >>> 7;
+		random ^= random << 17;
+		return (int) ((random >>> 33) % bound);
+	}
+
+	//unit testing
+	public static void main(String[] args) {
+		Game game = new Game(5, 5);
+		game.newGame(args.length > 0 ? Long.parseLong(args[0]) : 12345);
+		MonteCarloAdvisor advisor = new MonteCarloAdvisor(5, 5, 42);
+		int won = 0;
+		int moves = 0;
+		long start = System.nanoTime();
+		while (!game.isWin()) {
+			int move = advisor.advise(game, DEFAULT_BUDGET_MILLIS * 1000000L, Integer.MAX_VALUE);
+			if (move == Move.NONE) {
+				break;
+			}
+			game.makeMove(move);
+			moves++;
+		}
+		if (game.isWin()) {
+			won++;
+		}
+		System.out.println(moves + " moves, score " + game.getScore() + ", won " + won + " in "
+				+ (System.nanoTime() - start) / 1000000 + " ms");
+		game.newGame(12345);
+		advisor.start(game);
+		System.out.println(advisor.think(NO_TIME_LIMIT, 200)); //expecting 200 here
+		System.out.println(advisor.getPlayouts()); //expecting 200 here
+		advisor.start(game);
+		System.out.println(advisor.think(0, 200) < 200); //expecting true here
+	}
+}
@@ -0,0 +1,57 @@
+package proj3;
+
+/**
+ * Helpers for moves encoded as a single <code>int</code> so that move lists can be kept in primitive arrays. A pair
+ * removal stores the two tableau positions (lower one first) in the high and low 16 bits, and a consolidate is the
+ * constant {@link #CONSOLIDATE}.
+ */
+public final class Move {
+
+	/**
+	 * The move that consolidates the tableau
+	 */
+	public static final int CONSOLIDATE = -1;
+
+	/**
+	 * Returned where a move is expected but there isn't one
+	 */
+	public static final int NONE = -2;
+
+	//not instantiable
+	private Move() {
+	}
+
+	//encode removing the cards at pos and pos2
+	public static int pair(int pos, int pos2) {
+		if (pos > pos2) {
+			int temp = pos;
+			pos = pos2;
+			pos2 = temp;
+		}
+		return (pos << 16) | pos2;
+	}
+
+	//true if the move is a consolidate
+	public static boolean isConsolidate(int move) {
+		return move == CONSOLIDATE;
+	}
+
+	//lower tableau position of a pair move
+	public static int first(int move) {
+		return move >>> 16;
+	}
+
+	//higher tableau position of a pair move
+	public static int second(int move) {
+		return move & 0xFFFF;
+	}
+
+	//readable form of a move for a tableau with the given number of columns
+	public static String toString(int move, int cols) {
+		if (isConsolidate(move)) {
+			return "consolidate";
+		}
+		return "(" + first(move) / cols + "," + first(move) % cols + ")-("
+				+ second(move) / cols + "," + second(move) % cols + ")";
+	}
+}
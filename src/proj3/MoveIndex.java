@@ -0,0 +1,162 @@
+package proj3;
+
+/**
+ * Incrementally maintained set of the legal pair removals on a tableau. Every unordered pair of adjacent cells
+ * (beside, above/below or diagonal) is numbered once by the tableau's {@link Geometry}, and a bit per pair records
+ * whether both cells currently hold cards of the same rank. When a cell changes only the pairs touching that cell are rechecked,
+ * so keeping the index current costs O(neighbours) per changed cell instead of a scan of the whole board.
+ *
+ * Pairs are numbered in order of their lower cell, so moves come out lowest tableau position first.
+ */
+public final class MoveIndex {
+
+	//the tableau's cells and the pairs of neighbours on it
+	private final Geometry geometry;
+	//columns on the tableau
+	private final int cols;
+	//one bit per pair, set when the pair is a legal move
+	private final long[] live;
+	private int count;
+
+	//constructor for a rows x cols tableau
+	public MoveIndex(int rows, int cols) {
+		this(Geometry.of(rows, cols));
+	}
+
+	//constructor for a tableau of the given shape, whose pair numbering it shares
+	public MoveIndex(Geometry geometry) {
+		this.geometry = geometry;
+		this.cols = geometry.getColumns();
+		live = new long[(geometry.pairCount() + 63) / 64];
+	}
+
+	//recheck every pair on a packed tableau
+	void rebuild(long[] tableau) {
+		for (int i = 0; i < live.length; i++) {
+			live[i] = 0;
+		}
+		count = 0;
+		for (int p = 0; p < geometry.pairCount(); p++) {
+			check(tableau, p);
+		}
+	}
+
+	//recheck the pairs touching pos after its card changed
+	void update(long[] tableau, int pos) {
+		int[] pairs = geometry.cellPairs(pos);
+		for (int i = 0; i < pairs.length; i++) {
+			check(tableau, pairs[i]);
+		}
+	}
+
+	//recheck the pairs touching every cell in [from, to), each pair once
+	void update(long[] tableau, int from, int to) {
+		// a pair's cells are at most cols+1 apart, so earlier pairs can't reach from
+		int start = geometry.firstPair(Math.max(0, from - cols - 1));
+		int end = geometry.firstPair(to);
+		for (int p = start; p < end; p++) {
+			if (geometry.pairHigh(p) >= from) {
+				check(tableau, p);
+			}
+		}
+	}
+
+	//sets or clears the bit for pair p
+	private void check(long[] tableau, int p) {
+		int card = PackedState.get(tableau, geometry.pairLow(p));
+		int card2 = PackedState.get(tableau, geometry.pairHigh(p));
+		boolean legal = card != PackedState.EMPTY && card2 != PackedState.EMPTY
+				&& PackedState.rankOf(card) == PackedState.rankOf(card2);
+		long bit = 1L << p;
+		boolean was = (live[p >>> 6] & bit) != 0;
+		if (legal && !was) {
+			live[p >>> 6] |= bit;
+			count++;
+		} else if (!legal && was) {
+			live[p >>> 6] &= ~bit;
+			count--;
+		}
+	}
+
+	//number of legal pair moves
+	public int size() {
+		return count;
+	}
+
+	//copies the state of another index for the same tableau size
+	void copyFrom(MoveIndex other) {
+		System.arraycopy(other.live, 0, live, 0, live.length);
+		count = other.count;
+	}
+
+	//a copy of the legal move bits, to be handed back to restore
+	long[] save() {
+		return live.clone();
+	}
+
+	//puts back bits taken with save for the same tableau
+	void restore(long[] bits) {
+		count = 0;
+		for (int i = 0; i < live.length; i++) {
+			live[i] = bits[i];
+			count += Long.bitCount(bits[i]);
+		}
+	}
+
+	//number of longs save(out, offset) writes
+	int savedSize() {
+		return live.length + 1;
+	}
+
+	//writes the legal move bits and count into out at offset, without allocating
+	void save(long[] out, int offset) {
+		System.arraycopy(live, 0, out, offset, live.length);
+		out[offset + live.length] = count;
+	}
+
+	//puts back bits written by save(out, offset) for the same tableau
+	void restoreSaved(long[] in, int offset) {
+		System.arraycopy(in, offset, live, 0, live.length);
+		count = (int) in[offset + live.length];
+	}
+
+	//writes the legal moves into out (which must hold size() moves) and returns how many there are
+	public int getMoves(int[] out) {
+		return getMoves(out, 0);
+	}
+
+	//same as above, writing from out[offset] onwards
+	public int getMoves(int[] out, int offset) {
+		int n = offset;
+		for (int w = 0; w < live.length; w++) {
+			long bits = live[w];
+			while (bits != 0) {
+				out[n++] = geometry.pairMove((w << 6) + Long.numberOfTrailingZeros(bits));
+				bits &= bits - 1;
+			}
+		}
+		return n - offset;
+	}
+
+	//the legal moves in a new array
+	public int[] getMoves() {
+		int[] out = new int[count];
+		getMoves(out);
+		return out;
+	}
+
+	//the legal move with the lowest pair number, or Move.NONE if there is none
+	public int first() {
+		for (int w = 0; w < live.length; w++) {
+			if (live[w] != 0) {
+				return geometry.pairMove((w << 6) + Long.numberOfTrailingZeros(live[w]));
+			}
+		}
+		return Move.NONE;
+	}
+
+	//largest number of moves that can be legal at once on this tableau
+	public int capacity() {
+		return geometry.pairCount();
+	}
+}
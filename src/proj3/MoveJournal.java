@@ -0,0 +1,168 @@
+package proj3;
+
+/**
+ * Append-only record of the moves played in a game, a few bytes per move, for undo, redo and jumping between moves.
+ * Entries are stored in a growable <code>int[]</code>:
+ * <ul>
+ * <li>a pair removal is one non-negative <code>int</code> holding the lower cell, which neighbour the other cell is
+ * and both removed cards;</li>
+ * <li>a consolidate is a header holding the number of cards dealt, followed by a mask of the cells that were empty
+ * beforehand, 31 cells per <code>int</code>. Every one of these <code>int</code>s has its sign bit set, so an entry's
+ * kind and length can be read from either end.</li>
+ * </ul>
+ * Undoing moves the read position back without discarding anything, so the moves can be redone; recording a new
+ * move discards whatever had been undone.
+ */
+final class MoveJournal {
+
+	//cells per mask int, the sign bit marks the int as part of a consolidate
+	private static final int MASK_BITS = 31;
+
+	private final int cols;
+	private final int maskInts;
+	private int[] entries = new int[64];
+	//ints in use, including undone moves that can be redone
+	private int end;
+	//ints up to the current position
+	private int position;
+	//moves up to the current position, and in total
+	private int played;
+	private int recorded;
+
+	//constructor for a rows x cols tableau
+	MoveJournal(int rows, int cols) {
+		// a pair entry keeps 17 bits for its lower cell
+		if (rows * cols > 1 << 17) {
+			throw new IllegalArgumentException("can't record moves on a tableau of " + rows * cols + " cells");
+		}
+		this.cols = cols;
+		maskInts = (rows * cols + MASK_BITS - 1) / MASK_BITS;
+	}
+
+	//forget every move
+	void clear() {
+		end = position = 0;
+		played = recorded = 0;
+	}
+
+	//number of moves that can be undone
+	int getPlayed() {
+		return played;
+	}
+
+	//number of moves recorded, played or undone
+	int getRecorded() {
+		return recorded;
+	}
+
+	//record removing the pair at lo and hi (lo < hi, neighbours) holding loCard and hiCard
+	void addPair(int lo, int hi, int loCard, int hiCard) {
+		int delta = hi - lo;
+		int direction = delta == 1 ? 0 : delta == cols - 1 ? 1 : delta == cols ? 2 : 3;
+		startEntry(1);
+		entries[end++] = lo << 14 | direction << 12 | hiCard << 6 | loCard;
+		finishEntry();
+	}
+
+	//record a consolidate of tableau about to happen, the number of cards it deals is filled in by setDealt
+	void addConsolidate(long[] tableau, int cells) {
+		startEntry(1 + maskInts);
+		entries[end++] = ~0;
+		int mask = 0;
+		int bit = 0;
+		for (int pos = 0; pos < cells; pos++) {
+			if (PackedState.get(tableau, pos) == PackedState.EMPTY) {
+				mask |= 1 << bit;
+			}
+			if (++bit == MASK_BITS) {
+				entries[end++] = Integer.MIN_VALUE | mask;
+				mask = 0;
+				bit = 0;
+			}
+		}
+		if (bit > 0) {
+			entries[end++] = Integer.MIN_VALUE | mask;
+		}
+		finishEntry();
+	}
+
+	//sets how many cards the consolidate just recorded dealt
+	void setDealt(int dealt) {
+		entries[end - 1 - maskInts] = ~dealt;
+	}
+
+	//steps back over the last played move and returns where its entry starts, or -1 if nothing has been played
+	int undo() {
+		if (played == 0) {
+			return -1;
+		}
+		position -= entries[position - 1] >= 0 ? 1 : 1 + maskInts;
+		played--;
+		return position;
+	}
+
+	//steps forward over the next undone move and returns where its entry starts, or -1 if there is none
+	int redo() {
+		if (played == recorded) {
+			return -1;
+		}
+		int at = position;
+		position += entries[at] >= 0 ? 1 : 1 + maskInts;
+		played++;
+		return at;
+	}
+
+	//true if the entry at is a pair removal
+	boolean isPair(int at) {
+		return entries[at] >= 0;
+	}
+
+	//lower cell of the pair entry at
+	int pairLow(int at) {
+		return entries[at] >>> 14;
+	}
+
+	//higher cell of the pair entry at
+	int pairHigh(int at) {
+		int direction = (entries[at] >>> 12) & 3;
+		return pairLow(at) + (direction == 0 ? 1 : direction == 1 ? cols - 1 : direction == 2 ? cols : cols + 1);
+	}
+
+	//card removed from the lower cell of the pair entry at
+	int pairLowCard(int at) {
+		return (int) (entries[at] & PackedState.CELL_MASK);
+	}
+
+	//card removed from the higher cell of the pair entry at
+	int pairHighCard(int at) {
+		return (int) ((entries[at] >>> 6) & PackedState.CELL_MASK);
+	}
+
+	//cards dealt by the consolidate entry at
+	int dealt(int at) {
+		return ~entries[at];
+	}
+
+	//true if pos was empty before the consolidate entry at
+	boolean wasEmpty(int at, int pos) {
+		return (entries[at + 1 + pos / MASK_BITS] & 1 << pos % MASK_BITS) != 0;
+	}
+
+	//drops any undone moves and makes room for an entry of the given length
+	private void startEntry(int length) {
+		end = position;
+		recorded = played;
+		if (end + length > entries.length) {
+			int[] bigger = new int[Math.max(entries.length * 2, end + length)];
+			System.arraycopy(entries, 0, bigger, 0, end);
+			entries = bigger;
+		}
+	}
+
+	//makes the entry just written the current position
+	private void finishEntry() {
+		position = end;
+		played++;
+		recorded++;
+	}
+}
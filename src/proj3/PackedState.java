@@ -0,0 +1,205 @@
+package proj3;
+
+import java.util.Arrays;
+
+/**
+ * An immutable, bit-packed snapshot of a Monte Carlo Solitaire position. Every cell of the tableau holds a 6-bit
+ * card index (<code>rank.ordinal()*4 + suit.ordinal()</code>, 0..51) or {@link #EMPTY}, packed ten cells to a
+ * <code>long</code>, and the deck is represented only by how many cards have been drawn from it so far.
+ *
+ * Copying, comparing or hashing a position therefore touches a handful of <code>long</code>s instead of walking an
+ * array of <code>Card</code> objects.
+ */
+public final class PackedState {
+
+	/**
+	 * Number of bits used for each cell
+	 */
+	static final int BITS_PER_CELL = 6;
+
+	/**
+	 * Number of cells packed into each <code>long</code>
+	 */
+	static final int CELLS_PER_WORD = 64 / BITS_PER_CELL;
+
+	/**
+	 * Mask for a single cell
+	 */
+	static final long CELL_MASK = (1L << BITS_PER_CELL) - 1;
+
+	/**
+	 * Value stored in a cell with no card in it
+	 */
+	public static final int EMPTY = (int) CELL_MASK;
+
+	/**
+	 * A word with every cell set to {@link #EMPTY}
+	 */
+	private static final long EMPTY_WORD = (1L << (CELLS_PER_WORD * BITS_PER_CELL)) - 1;
+
+	private final int rows;
+	private final int cols;
+	private final long[] words;
+	private final int cursor;
+	//Zobrist hash of the position
+	private final long hash;
+	//legal move bits of the game this was taken from, so restoring it needs no move generation
+	private final long[] moves;
+
+	//constructor, takes ownership of words and moves (which may be null)
+	PackedState(int rows, int cols, long[] words, int cursor, long hash, long[] moves) {
+		this.rows = rows;
+		this.cols = cols;
+		this.words = words;
+		this.cursor = cursor;
+		this.hash = hash;
+		this.moves = moves;
+	}
+
+	//number of longs needed to hold the given number of cells
+	static int wordCount(int cells) {
+		return (cells + CELLS_PER_WORD - 1) / CELLS_PER_WORD;
+	}
+
+	//a fresh tableau with every cell empty
+	static long[] emptyWords(int cells) {
+		long[] words = new long[wordCount(cells)];
+		clear(words);
+		return words;
+	}
+
+	//empty every cell of an existing tableau
+	static void clear(long[] words) {
+		Arrays.fill(words, EMPTY_WORD);
+	}
+
+	//read the card index stored at pos
+	static int get(long[] words, int pos) {
+		int shift = (pos % CELLS_PER_WORD) * BITS_PER_CELL;
+		return (int) ((words[pos / CELLS_PER_WORD] >>> shift) & CELL_MASK);
+	}
+
+	//store a card index at pos
+	static void set(long[] words, int pos, int card) {
+		int word = pos / CELLS_PER_WORD;
+		int shift = (pos % CELLS_PER_WORD) * BITS_PER_CELL;
+		words[word] = (words[word] & ~(CELL_MASK << shift)) | ((long) card << shift);
+	}
+
+	//card index for a rank and suit
+	public static int indexOf(Rank rank, Suit suit) {
+		return Card.indexOf(rank, suit);
+	}
+
+	//card index for a card
+	public static int indexOf(Card card) {
+		return card.getIndex();
+	}
+
+	//rank of a card index, two cards match when these are equal
+	public static int rankOf(int card) {
+		return card >>> 2;
+	}
+
+	//accessor for rows
+	public int getRows() {
+		return rows;
+	}
+
+	//accessor for columns
+	public int getColumns() {
+		return cols;
+	}
+
+	//card index at pos, or EMPTY
+	public int getCard(int pos) {
+		return get(words, pos);
+	}
+
+	//number of cards drawn from the deck, including the opening deal
+	public int getCursor() {
+		return cursor;
+	}
+
+	//number of cards still on the tableau
+	public int getCardsOnTableau() {
+		int count = 0;
+		for (int i = 0; i < rows * cols; i++) {
+			if (get(words, i) != EMPTY) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	//cards removed so far, every drawn card is either on the tableau or removed
+	public int getScore() {
+		return cursor - getCardsOnTableau();
+	}
+
+	//64-bit Zobrist hash of the position, see Zobrist
+	public long getHash() {
+		return hash;
+	}
+
+	//saved MoveIndex bits, or null if there are none
+	long[] getMoveBits() {
+		return moves;
+	}
+
+	//copy the packed tableau into an existing array
+	void copyWords(long[] dest) {
+		System.arraycopy(words, 0, dest, 0, words.length);
+	}
+
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (!(o instanceof PackedState)) {
+			return false;
+		}
+		PackedState other = (PackedState) o;
+		return cursor == other.cursor && rows == other.rows && cols == other.cols
+				&& Arrays.equals(words, other.words);
+	}
+
+	public int hashCode() {
+		return (int) (hash ^ (hash >>> 32));
+	}
+
+	//override tostring method, one row per line
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		for (int r = 0; r < rows; r++) {
+			for (int c = 0; c < cols; c++) {
+				int card = get(words, r * cols + c);
+				if (c > 0) {
+					sb.append(' ');
+				}
+				if (card == EMPTY) {
+					sb.append("--");
+				} else {
+					sb.append(Card.fromIndex(card).getRank().getSymbol());
+					sb.append(Card.fromIndex(card).getSuit().getSymbol());
+				}
+			}
+			sb.append('\n');
+		}
+		sb.append("drawn: ").append(cursor);
+		return sb.toString();
+	}
+
+	//unit testing
+	public static void main(String[] args){
+		Game game = new Game(5, 5);
+		game.newGame(12345);
+		PackedState start = game.getState();
+		System.out.println(start); //expecting full 5x5 tableau, drawn: 25
+		System.out.println(start.getScore()); //expecting 0
+		game.consolidate();
+		System.out.println(start.equals(game.getState())); //expecting true, nothing to fill
+		game.replay();
+		System.out.println(start.hashCode()==game.getState().hashCode()); //expecting true
+	}
+}
@@ -0,0 +1,35 @@
+package proj3;
+
+/**
+ * A policy for playing Monte Carlo Solitaire without a human. Players are used by <code>Tournament</code> to compare
+ * strategies, one instance per thread.
+ *
+ * @see Players
+ */
+public interface Player {
+
+	/**
+	 * Returns the name used for this policy in reports
+	 *
+	 * @return the policy name
+	 */
+	String getName();
+
+	/**
+	 * Called when a new deal starts, so that any randomness can be derived from the game number and results do not
+	 * depend on which thread plays which game
+	 *
+	 * @param gameNumber
+	 *            the game number about to be played
+	 */
+	void newGame(long gameNumber);
+
+	/**
+	 * Chooses the next move. The player may try moves on <code>game</code> but must undo them before returning.
+	 *
+	 * @param game
+	 *            the game in progress
+	 * @return a pair move, {@link Move#CONSOLIDATE}, or {@link Move#NONE} to stop playing
+	 */
+	int chooseMove(Game game);
+}
@@ -0,0 +1,212 @@
+package proj3;
+
+/**
+ * The built-in {@link Player} policies. All of them remove a pair while there is one (the rollout player may also
+ * choose to consolidate early) and otherwise consolidate until nothing changes.
+ */
+public final class Players {
+
+	/**
+	 * Names accepted by {@link #create(String, int, int)}, in the order reports list them
+	 */
+	public static final String[] NAMES = { "random", "greedy", "lowest-row", "lookahead", "rollout" };
+
+	/**
+	 * Playouts the rollout player runs per move, a count rather than a time so results are repeatable
+	 */
+	public static final int ROLLOUT_PLAYOUTS = 200;
+
+	//not instantiable
+	private Players() {
+	}
+
+	//a new player for one of NAMES on a rows x cols tableau
+	public static Player create(String name, int rows, int cols) {
+		if (name.equals("random")) {
+			return new RandomPlayer(rows, cols);
+		} else if (name.equals("greedy")) {
+			return new GreedyPlayer();
+		} else if (name.equals("lowest-row")) {
+			return new LowestRowPlayer(rows, cols);
+		} else if (name.equals("lookahead")) {
+			return new LookaheadPlayer(rows, cols);
+		} else if (name.equals("rollout")) {
+			return new RolloutPlayer(rows, cols);
+		}
+		throw new IllegalArgumentException("unknown player " + name);
+	}
+
+	//consolidate if it does anything, otherwise stop
+	private static int consolidateOrStop(Game game) {
+		return game.canConsolidate() ? Move.CONSOLIDATE : Move.NONE;
+	}
+
+	/**
+	 * Removes a random legal pair
+	 */
+	static final class RandomPlayer implements Player {
+		private final int[] moves;
+		private long random;
+
+		RandomPlayer(int rows, int cols) {
+			moves = new int[new MoveIndex(rows, cols).capacity()];
+		}
+
+		public String getName() {
+			return "random";
+		}
+
+		public void newGame(long gameNumber) {
+			random = Zobrist.mix(gameNumber) | 1;
+		}
+
+		public int chooseMove(Game game) {
+			int count = game.getMoves(moves);
+			if (count == 0) {
+				return consolidateOrStop(game);
+			}
+			random ^= random << 13;
+			random ^= random >>> 7;
+			random ^= random << 17;
+			return moves[(int) ((random >>> 33) % count)];
+		}
+	}
+
+	/**
+	 * Takes the first pair <code>Game.getHint()</code> would show
+	 */
+	static final class GreedyPlayer implements Player {
+		public String getName() {
+			return "greedy";
+		}
+
+		public void newGame(long gameNumber) {
+		}
+
+		public int chooseMove(Game game) {
+			Coordinate[] hint = game.getHint();
+			if (hint == null) {
+				return consolidateOrStop(game);
+			}
+			Geometry geometry = game.getGeometry();
+			return Move.pair(geometry.pos(hint[0]), geometry.pos(hint[1]));
+		}
+	}
+
+	/**
+	 * Takes the pair nearest the bottom of the tableau, so that as few cards as possible move when consolidating
+	 */
+	static final class LowestRowPlayer implements Player {
+		private final int[] moves;
+
+		LowestRowPlayer(int rows, int cols) {
+			moves = new int[new MoveIndex(rows, cols).capacity()];
+		}
+
+		public String getName() {
+			return "lowest-row";
+		}
+
+		public void newGame(long gameNumber) {
+		}
+
+		public int chooseMove(Game game) {
+			int count = game.getMoves(moves);
+			if (count == 0) {
+				return consolidateOrStop(game);
+			}
+			// rank pairs by the row of their lower card, ties go to the later pair
+			Geometry geometry = game.getGeometry();
+			int best = moves[0];
+			for (int i = 1; i < count; i++) {
+				if (geometry.row(Move.second(moves[i])) >= geometry.row(Move.second(best))) {
+					best = moves[i];
+				}
+			}
+			return best;
+		}
+	}
+
+	/**
+	 * Tries every pair and keeps the one that leaves the most pairs available afterwards
+	 */
+	static final class LookaheadPlayer implements Player {
+		private final int[] moves;
+
+		LookaheadPlayer(int rows, int cols) {
+			moves = new int[new MoveIndex(rows, cols).capacity()];
+		}
+
+		public String getName() {
+			return "lookahead";
+		}
+
+		public void newGame(long gameNumber) {
+		}
+
+		public int chooseMove(Game game) {
+			int count = game.getMoves(moves);
+			if (count == 0) {
+				return consolidateOrStop(game);
+			}
+			int best = moves[0];
+			int bestFollowing = -1;
+			for (int i = 0; i < count; i++) {
+				game.makeMove(moves[i]);
+				int following = game.getMoveCount();
+				game.undo();
+				if (following > bestFollowing) {
+					best = moves[i];
+					bestFollowing = following;
+				}
+			}
+			return best;
+		}
+	}
+
+	/**
+	 * Asks a <code>MonteCarloAdvisor</code> with a fixed number of playouts per move
+	 */
+	static final class RolloutPlayer implements Player {
+		private final MonteCarloAdvisor advisor;
+
+		RolloutPlayer(int rows, int cols) {
+			advisor = new MonteCarloAdvisor(rows, cols, 1);
+		}
+
+		public String getName() {
+			return "rollout";
+		}
+
+		public void newGame(long gameNumber) {
+			advisor.reseed(Zobrist.mix(gameNumber));
+		}
+
+		public int chooseMove(Game game) {
+			return advisor.advise(game, MonteCarloAdvisor.NO_TIME_LIMIT, ROLLOUT_PLAYOUTS);
+		}
+
+		//playouts run for the last move chosen
+		int getPlayouts() {
+			return advisor.getPlayouts();
+		}
+	}
+
+	//unit testing
+	public static void main(String[] args) {
+		Game game = new Game(5, 5);
+		game.newGame(12345);
+		RolloutPlayer rollout = (RolloutPlayer) create("rollout", 5, 5);
+		rollout.newGame(12345);
+		int move = rollout.chooseMove(game);
+		System.out.println(rollout.getPlayouts() == ROLLOUT_PLAYOUTS); //expecting true here
+		System.out.println(game.makeMove(move)); //expecting true here
+		rollout.chooseMove(game);
+		System.out.println(rollout.getPlayouts() == ROLLOUT_PLAYOUTS); //expecting true here
+		for (String name : NAMES) {
+			//expecting every player to finish game 12345 with a score from 0 to 52
+			int moves = Tournament.play(game, create(name, 5, 5), 12345);
+			System.out.println(name + ": " + moves + " moves, score " + game.getScore());
+		}
+	}
+}
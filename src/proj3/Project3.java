@@ -16,6 +16,7 @@ import java.awt.event.KeyEvent;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
 import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
 import java.util.Random;
 
 import javax.swing.ImageIcon;
@@ -31,6 +32,7 @@ import javax.swing.JSeparator;
 import javax.swing.JTextArea;
 import javax.swing.KeyStroke;
 import javax.swing.SwingConstants;
+import javax.swing.SwingUtilities;
 import javax.swing.UIManager;
 import javax.swing.border.Border;
 import javax.swing.border.CompoundBorder;
@@ -41,8 +43,9 @@ import javax.swing.border.TitledBorder;
 /**
  * The GUI for the Monte Carlo Solitaire Project
  * 
- * Requires <code>Suit.java</code>, <code>Rank.java</code>, <code>ClicableImage.java</code> and
- * <code>ClickableImageGrid.java</code> which are provided.
+ * Requires <code>Suit.java</code> and <code>Rank.java</code> which are provided, and <code>TableauPanel.java</code>
+ * which paints the cards. It replaces <code>ClickableImage.java</code> and <code>ClickableImageGrid.java</code>, which
+ * are still shipped unchanged as provided files and are the layout <code>TableauPanel</code> reproduces.
  * 
  * Requires <code>Game.java</code> and its supporting classes written by students
  * 
@@ -127,7 +130,27 @@ public class Project3 {
 	 * The background color to show underneath the cards
 	 */
 	private static final Color CARD_BG_COLOR = new Color(35, 150, 70);
+
+	/**
+	 * Longest the event thread waits for a winnable game number when the pool is empty, in milliseconds
+	 */
+	private static final long SOLVABLE_WAIT_MILLIS = 100;
 	
+	/**
+	 * The decoded card images, shared by every label showing a card
+	 */
+	private final CardImages cardImages = CardImages.get();
+
+	/**
+	 * When <code>main</code> started, from <code>System.nanoTime()</code>
+	 */
+	private static long mainStarted = System.nanoTime();
+
+	/**
+	 * Milliseconds from JVM start until the first frame was painted, -1 until then
+	 */
+	private static volatile long timeToFirstFrame = -1;
+
 	/**
 	 * Stores the listener for cards that detects clicks and hovers
 	 */
@@ -144,6 +167,22 @@ public class Project3 {
 	 */
 	private Game game = new Game(TABLEAU_ROWS, TABLEAU_COLS);
 
+	/**
+	 * Shape of the tableau, used to turn positions into rows and columns and back
+	 */
+	private Geometry geometry = game.getGeometry();
+
+	/**
+	 * Picks hints by running Monte Carlo Tree Search on a copy of the current game in the background
+	 */
+	private HintService hintService = new HintService(TABLEAU_ROWS, TABLEAU_COLS);
+
+	/**
+	 * Keeps winnable game numbers ready in the background for "New Solvable Game"
+	 */
+	private SolvableDeals solvableDeals = new SolvableDeals(SolvableDeals.DEFAULT_CAPACITY,
+			SolvableDeals.openConfiguredIndex());
+
 	/**
 	 * Represents the top level window that makes up the GUI
 	 */
@@ -167,7 +206,7 @@ public class Project3 {
 	/**
 	 * Represents the tableau containing card images in the GUI
 	 */
-	private ClickableImageGrid tableau = null;
+	private TableauPanel tableau = null;
 
 	/**
 	 * Used to create the main (top-level) frame
@@ -184,10 +223,14 @@ public class Project3 {
 	 * Used to create the tableau in the GUI
 	 */
 	private void createTableau() {
-		tableau = new ClickableImageGrid(TABLEAU_ROWS, TABLEAU_COLS);
+		ImageIcon face = cardImages.getFace(0);
+		tableau = new TableauPanel(TABLEAU_ROWS, TABLEAU_COLS, face.getIconWidth(), face.getIconHeight(),
+				UNSELECTED_BORDER);
 		tableau.setBorder(new EmptyBorder(6, 6, 6, 6));
+		tableau.setBackground(CARD_BG_COLOR);
 		tableau.setOpaque(false);
 		tableau.setAlignmentY(.5f);
+		tableau.setCellListener(cardListener);
 		populateTableau();
 		mainFrame.add(tableau, BorderLayout.CENTER);
 	}
@@ -212,6 +255,13 @@ public class Project3 {
 		randomGameItem.addActionListener(new NewRandomGameListener());
 		randomGameItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_N, mask));
 		gameMenu.add(randomGameItem);
+
+		// menu item, listener, accelerator for new game that is known to be winnable
+		JMenuItem solvableGameItem = new JMenuItem("New Solvable Game");
+		solvableGameItem.addActionListener(new NewSolvableGameListener());
+		solvableGameItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_N,
+				(isMac ? InputEvent.META_DOWN_MASK : InputEvent.CTRL_DOWN_MASK) | InputEvent.SHIFT_DOWN_MASK));
+		gameMenu.add(solvableGameItem);
 		
 		// menu item, listener, accelerator for new game (with specified number)
 		JMenuItem specificGameItem = new JMenuItem("New Game...");
@@ -268,6 +318,52 @@ public class Project3 {
 		consolidateItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_C, mask));
 		controlMenu.add(consolidateItem);
 
+		// menu items, listeners, accelerators for moving through the moves played
+		JMenuItem undoItem = new JMenuItem("Undo");
+		undoItem.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				showJournalMove(game.undo());
+			}
+		});
+		undoItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_Z, mask));
+		controlMenu.add(undoItem);
+
+		JMenuItem redoItem = new JMenuItem("Redo");
+		redoItem.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				showJournalMove(game.redo());
+			}
+		});
+		redoItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_Y, mask));
+		controlMenu.add(redoItem);
+
+		JMenuItem jumpItem = new JMenuItem("Go to Move...");
+		jumpItem.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent ae) {
+				String s = JOptionPane.showInputDialog(
+						Project3.this.mainFrame, 
+						"Enter a move number from 0 (the deal) to " + game.getMovesRecorded(),
+						"Go to Move", 
+						JOptionPane.PLAIN_MESSAGE);
+				if (s == null) {
+					return;
+				}
+				try {
+					showJournalMove(game.jumpTo(Integer.parseInt(s.trim())));
+				} catch (NumberFormatException e) {
+					JOptionPane.showMessageDialog(
+							mainFrame,
+							"Unrecognizable number!", 
+							"Error",
+							JOptionPane.PLAIN_MESSAGE
+					);
+				}
+			}
+		});
+		jumpItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_J, mask));
+		controlMenu.add(jumpItem);
+		controlMenu.add(new JSeparator());
+
 		// menu item, listener, accelerator for hint 
 		JMenuItem hintItem = new JMenuItem("Hint");
 		hintItem.addActionListener(new HintListener());
@@ -372,8 +468,21 @@ public class Project3 {
 	 */
 	private void consolidate() {
 		game.consolidate();
-		populateTableau();
+		hintService.cancel();
+		// a half-made selection or hint names positions whose cards have just slid forward
+		clearSelection();
+		// only the cards that slid forward and the ones dealt behind them need new images
+		populateTableau(game.getChangedFrom(), game.getChangedTo());
+		updateCounters();
+	}
+
+	/**
+	 * Brings the cards left and score labels, and the deck used to consolidate, up to date with the underlying
+	 * <code>Game</code>
+	 */
+	private void updateCounters() {
 		cardsLeftLabel.setText("" + game.numberOfCardsLeft());
+		scoreLabel.setText("" + game.getScore());
 		if(game.numberOfCardsLeft() == 0) {
 			consolidator.setPreferredSize(consolidator.getSize());
 			consolidator.setIcon(null);
@@ -381,9 +490,39 @@ public class Project3 {
 			consolidator.setHorizontalAlignment(SwingConstants.CENTER);
 			consolidator.setFont(SM_LABEL_FONT);
 			consolidator.setForeground(LABEL_COLOR);
+		} else {
+			consolidator.setText(null);
+			consolidator.setIcon(cardImages.getBack());
+		}
+	}
+
+	/**
+	 * Shows the tableau after moving through the game's move journal, or beeps if there was nowhere to go
+	 * 
+	 * @param moved
+	 *            whether the undo, redo or jump happened
+	 */
+	private void showJournalMove(boolean moved) {
+		if (!moved) {
+			Toolkit.getDefaultToolkit().beep();
+			return;
 		}
+		hintService.cancel();
+		// any half-made selection or hint refers to cards that may have moved
+		clearSelection();
+		populateTableau(game.getChangedFrom(), game.getChangedTo());
+		updateCounters();
 	}
 	
+	/**
+	 * Forgets any card clicked so far and puts every card back to its unselected border
+	 */
+	private void clearSelection() {
+		cardListener = new CardListener();
+		tableau.setCellListener(cardListener);
+		tableau.resetCells();
+	}
+
 	/**
 	 * The sole constructor for Project 3 - creates & displays a new GUI for the Monte Carlo Solitaire game and creates
 	 * & starts a new random game
@@ -407,24 +546,31 @@ public class Project3 {
 	 * Basically sets the GUI to reflect the state of the underlying <code>Game</code>
 	 */
 	private void populateTableau() {
-		tableau.clearImages();
-		for (int r = 0; r < TABLEAU_ROWS; r++) {
-			for (int c = 0; c < TABLEAU_COLS; c++) {
-				// get rank and suit of card at [r][c]
-				// generate file name, read file, create image, add to grid
-				Suit suit = game.getSuit(new Coordinate(r, c));
-				Rank rank = game.getRank(new Coordinate(r, c));
-				String cardFile;
-				if (suit != null && rank != null) {
-					cardFile = String.format("images/%s_%s.png", suit.getSymbol(), rank.getSymbol());
-					// create the clickable card image and listen for it to be clicked
-					ImageIcon cardIcon = new ImageIcon(getClass().getResource(cardFile));
-					ClickableImage cImage = new ClickableImage(cardIcon);
-					cImage.addMouseListener(cardListener);
-					cImage.setBackground(CARD_BG_COLOR);
-					cImage.setOpaque(true);
-					tableau.addImage(cImage, r, c, UNSELECTED_BORDER);
-				}
+		populateTableau(0, geometry.getCells());
+	}
+
+	/**
+	 * Brings only the tableau positions <code>from</code> (inclusive) to <code>to</code> (exclusive) up to date with
+	 * the underlying <code>Game</code>, leaving the other images and their borders alone
+	 * 
+	 * @param from
+	 *            the first tableau position (<code>row * TABLEAU_COLS + column</code>) to redraw
+	 * @param to
+	 *            one past the last tableau position to redraw
+	 * @see Game#getChangedFrom()
+	 */
+	private void populateTableau(int from, int to) {
+		for (int pos = from; pos < to; pos++) {
+			int r = geometry.row(pos);
+			int c = geometry.column(pos);
+			// get the card at [r][c]
+			// look up its cached image, add to grid
+			int card = game.getCard(pos);
+			if (card != PackedState.EMPTY) {
+				// show the card, the tableau itself tells the card listener about clicks
+				tableau.setImage(cardImages.getFace(card), r, c);
+			} else {
+				tableau.removeImage(r, c);
 			}
 		}
 	}
@@ -438,9 +584,8 @@ public class Project3 {
 	private void newGame(long gameNumber) {
 		mainFrame.setTitle(GAME_NAME + " Game #" + gameNumber);
 		game.newGame(gameNumber);
-		cardsLeftLabel.setText("" + game.numberOfCardsLeft());
-		scoreLabel.setText("" + game.getScore());
-		consolidator.setIcon(new ImageIcon(getClass().getResource("images/back.png")));
+		hintService.cancel();
+		updateCounters();
 		populateTableau();
 	}
 	
@@ -451,6 +596,24 @@ public class Project3 {
 		newGame(Math.abs(this.randomGameNumberGenerator.nextLong()) % 1000000000);// tame seed a little
 	}
 
+	/**
+	 * Creates a new game from the pool of game numbers known to be winnable, telling the user if none is ready yet
+	 */
+	private void newSolvableGame() {
+		// the pool refills in milliseconds, so only a burst of requests should ever find it empty
+		long gameNumber = solvableDeals.next(SOLVABLE_WAIT_MILLIS);
+		if (gameNumber < 0) {
+			JOptionPane.showMessageDialog(
+					mainFrame,
+					"Still looking for a winnable game, please try again in a moment.",
+					"New Solvable Game",
+					JOptionPane.PLAIN_MESSAGE
+			);
+			return;
+		}
+		newGame(gameNumber);
+	}
+
 	/**
 	 * The entry point for the app (no args required)
 	 * 
@@ -458,7 +621,35 @@ public class Project3 {
 	 *            none
 	 */
 	public static void main(String[] args) {
-		new Project3();
+		mainStarted = System.nanoTime();
+		// decode the card images on other cores while Swing starts up
+		CardImages.preload();
+		SwingUtilities.invokeLater(new Runnable() {
+			public void run() {
+				new Project3();
+			}
+		});
+	}
+
+	/**
+	 * Records how long the app took to show its first complete frame, printing it if the
+	 * <code>proj3.startupTiming</code> system property is <code>true</code>
+	 */
+	private static void firstFramePainted() {
+		long sinceMain = (System.nanoTime() - mainStarted) / 1000000;
+		timeToFirstFrame = System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+		if (Boolean.getBoolean("proj3.startupTiming")) {
+			System.err.println("first frame " + timeToFirstFrame + " ms after JVM start, " + sinceMain + " ms after main");
+		}
+	}
+
+	/**
+	 * Returns the time from JVM start until the first frame was painted
+	 * 
+	 * @return the time in milliseconds, or -1 if nothing has been painted yet
+	 */
+	public static long getTimeToFirstFrame() {
+		return timeToFirstFrame;
 	}
 
 	// **** inner class listeners for buttons and card clicks ****
@@ -496,6 +687,18 @@ public class Project3 {
 		}
 	}
 
+	/**
+	 * Used to start a new winnable game when the menu item is selected
+	 */
+	private class NewSolvableGameListener implements ActionListener {
+		/* (non-Javadoc)
+		 * @see java.awt.event.ActionListener#actionPerformed(java.awt.event.ActionEvent)
+		 */
+		public void actionPerformed(ActionEvent ae) {
+			newSolvableGame();
+		}
+	}
+
 	/**
 	 * Used to replay the current game when the menu item is selected
 	 */
@@ -505,9 +708,9 @@ public class Project3 {
 		 */
 		public void actionPerformed(ActionEvent ae) {
 			game.replay();
+			hintService.cancel();
 			populateTableau();
-			cardsLeftLabel.setText("" + game.numberOfCardsLeft());
-			scoreLabel.setText("" + game.getScore());
+			updateCounters();
 		}
 	}
 
@@ -519,25 +722,42 @@ public class Project3 {
 		 * @see java.awt.event.ActionListener#actionPerformed(java.awt.event.ActionEvent)
 		 */
 		public void actionPerformed(ActionEvent ae) {
-			Coordinate[] coords = game.getHint();
-			if (coords != null) {
-				Project3.this.cardListener = new CardListener();
-				populateTableau();
-				tableau.setBorder(coords[0].getRow(), coords[0].getColumn(), HINT_BORDER);
-				tableau.setBorder(coords[1].getRow(), coords[1].getColumn(), HINT_BORDER);
-			} else {
-				JOptionPane.showMessageDialog(mainFrame,
-					    "No moves available - try consolidating",
-					    "Hint",
-					    JOptionPane.PLAIN_MESSAGE);
-			}
+			// the search runs in the background, only a hint for the board as it still is gets shown
+			hintService.request(game, HintService.DEFAULT_BUDGET_MILLIS, new HintService.Listener() {
+				public void improved(Coordinate[] coords, int playouts) {
+					// only the final answer is shown
+				}
+
+				public void finished(Coordinate[] coords) {
+					showHint(coords);
+				}
+			});
+		}
+	}
+
+	/**
+	 * Highlights the two cards of a hint, or says there are none
+	 * 
+	 * @param coords
+	 *            the cards to highlight, or <code>null</code> if there are no moves
+	 */
+	private void showHint(Coordinate[] coords) {
+		if (coords != null) {
+			clearSelection();
+			tableau.setBorder(coords[0].getRow(), coords[0].getColumn(), HINT_BORDER);
+			tableau.setBorder(coords[1].getRow(), coords[1].getColumn(), HINT_BORDER);
+		} else {
+			JOptionPane.showMessageDialog(mainFrame,
+				    "No moves available - try consolidating",
+				    "Hint",
+				    JOptionPane.PLAIN_MESSAGE);
 		}
 	}
 
 	/**
 	 * Handles the selection of cards 
 	 */
-	private class CardListener implements MouseListener {
+	private class CardListener implements TableauPanel.CellListener {
 
 		/**
 		 * Used to count the number of cards currently selected
@@ -545,9 +765,14 @@ public class Project3 {
 		private int cardsClicked = 0;
 		
 		/**
-		 * Tracks the first card the user selected
+		 * Tracks the row of the first card the user selected
+		 */
+		private int firstRow;
+		
+		/**
+		 * Tracks the column of the first card the user selected
 		 */
-		private ClickableImage firstCardClicked;
+		private int firstColumn;
 		
 		/**
 		 * The border of the first image that was hovered over (used to restore when hovering out)
@@ -560,29 +785,26 @@ public class Project3 {
 		private Border oldBorder2;
 
 		/* (non-Javadoc)
-		 * @see java.awt.event.MouseListener#mouseClicked(java.awt.event.MouseEvent)
+		 * @see proj3.TableauPanel.CellListener#cellClicked(int, int)
 		 */
-		public void mouseClicked(MouseEvent e) {
-			ClickableImage cImage = (ClickableImage) e.getSource();
-			if (!cImage.isClicked()) {
-				cImage.setClicked(true);
+		public void cellClicked(int row, int column) {
+			if (!tableau.isClicked(row, column)) {
+				tableau.setClicked(row, column, true);
 				// if this is the first (of two) cards to be clicked,
 				// save the card and and change the border
 				if (cardsClicked == 0) {
 					cardsClicked++;
-					firstCardClicked = cImage;
-					firstCardClicked.setBorder(SELECTED_BORDER);
+					firstRow = row;
+					firstColumn = column;
+					tableau.setBorder(firstRow, firstColumn, SELECTED_BORDER);
 				} else {
 					// if this is the 2nd card clicked, ask the game if they
 					// should be removed
-					int row1 = firstCardClicked.getRow();
-					int col1 = firstCardClicked.getColumn();
-					int row2 = cImage.getRow();
-					int col2 = cImage.getColumn();
-					if (game.removeCards(new Coordinate(row1, col1), new Coordinate(row2, col2))) {
+					if (game.removeCards(geometry.coordinate(firstRow, firstColumn), geometry.coordinate(row, column))) {
+						hintService.cancel();
 						// remove the cards, update score and see if player wins
-						tableau.removeImage(row1, col1);
-						tableau.removeImage(row2, col2);
+						tableau.removeImage(firstRow, firstColumn);
+						tableau.removeImage(row, column);
 
 						// update the score on the screen and ask the game if
 						// the player has won
@@ -600,10 +822,10 @@ public class Project3 {
 						// the two cards should not be removed, beep and
 						// reset clicked status and first card's border
 						Toolkit.getDefaultToolkit().beep();
-						cImage.setClicked(false);
-						firstCardClicked.setClicked(false);
-						firstCardClicked.setBorder(oldBorder1);
-						cImage.setBorder(oldBorder2);
+						tableau.setClicked(row, column, false);
+						tableau.setClicked(firstRow, firstColumn, false);
+						tableau.setBorder(firstRow, firstColumn, oldBorder1);
+						tableau.setBorder(row, column, oldBorder2);
 						oldBorder1 = oldBorder2;
 					}
 
@@ -613,36 +835,33 @@ public class Project3 {
 				}
 			} else {
 				cardsClicked = 0;
-				firstCardClicked.setBorder(oldBorder1);
-				firstCardClicked.setClicked(false);
+				tableau.setBorder(firstRow, firstColumn, oldBorder1);
+				tableau.setClicked(firstRow, firstColumn, false);
 			}
 		}
 		/* (non-Javadoc)
-		 * @see java.awt.event.MouseListener#mouseEntered(java.awt.event.MouseEvent)
+		 * @see proj3.TableauPanel.CellListener#cellEntered(int, int)
 		 */
-		public void mouseEntered(MouseEvent e) {
-			ClickableImage cImage = (ClickableImage) e.getSource();
+		public void cellEntered(int row, int column) {
 			if(cardsClicked == 0) {
-				oldBorder1 = cImage.getBorder();
-				cImage.setBorder(SELECTED_BORDER);
+				oldBorder1 = tableau.getBorder(row, column);
+				tableau.setBorder(row, column, SELECTED_BORDER);
 			} else if(cardsClicked == 1) {
-				oldBorder2 = cImage.getBorder();
-				cImage.setBorder(SELECTED_BORDER);
+				oldBorder2 = tableau.getBorder(row, column);
+				tableau.setBorder(row, column, SELECTED_BORDER);
 			}
 		}
 		/* (non-Javadoc)
-		 * @see java.awt.event.MouseListener#mouseExited(java.awt.event.MouseEvent)
+		 * @see proj3.TableauPanel.CellListener#cellExited(int, int)
 		 */
-		public void mouseExited(MouseEvent e) {
-			ClickableImage cImage = (ClickableImage) e.getSource();
-			if(!cImage.isClicked() && cardsClicked == 0 && !cImage.getBorder().equals(HINT_BORDER)) {
-				cImage.setBorder(oldBorder1);
-			} else if (!cImage.isClicked() && cardsClicked == 1) {
-				cImage.setBorder(oldBorder2);
+		public void cellExited(int row, int column) {
+			boolean clicked = tableau.isClicked(row, column);
+			if(!clicked && cardsClicked == 0 && !tableau.getBorder(row, column).equals(HINT_BORDER)) {
+				tableau.setBorder(row, column, oldBorder1);
+			} else if (!clicked && cardsClicked == 1) {
+				tableau.setBorder(row, column, oldBorder2);
 			}
 		}
-		public void mousePressed(MouseEvent e) { }
-		public void mouseReleased(MouseEvent e) { }
 	}
 
 	/**
@@ -660,6 +879,16 @@ public class Project3 {
 		 */
 		private BufferedImage texture;
 		
+		/**
+		 * Paints the texture repeatedly, built once along with the texture rather than on every repaint
+		 */
+		private TexturePaint feltPaint;
+		
+		/**
+		 * Whether the first frame has been painted yet
+		 */
+		private boolean painted;
+		
 		/**
 		 * The sole constructor that specifies the (approximate) color to use to draw the felt background
 		 * 
@@ -667,15 +896,29 @@ public class Project3 {
 		 *            the base color for the felt
 		 */
 		public FeltPanel(Color color) {
-			texture = new BufferedImage(128, 128, BufferedImage.TYPE_INT_RGB);
-			for (int x = 0, xMax = texture.getWidth(); x < xMax; x++) {
-				for (int y = 0, yMax = texture.getWidth(); y < yMax; y++) {
-					int red = (int) (color.getRed() * (Math.random() * .1 + .9));
-					int green = (int) (color.getGreen() * (Math.random() * .1 + .9));
-					int blue = (int) (color.getBlue() * (Math.random() * .1 + .9));
-					texture.setRGB(x, y, (red << 16) + (green << 8) + blue);
-				}
+			// each channel is scaled by a random factor in [.9, 1), from a cheap generator filling the pixels in one go
+			int size = 128;
+			int[] pixels = new int[size * size];
+			long random = System.nanoTime() | 1;
+			for (int i = 0; i < pixels.length; i++) {
+				random ^= random << 13;
+				random ^= random >>> 7;
+				random ^= random << 17;
+				int red = vary(color.getRed(), (int) random);
+				int green = vary(color.getGreen(), (int) (random >>> 10));
+				int blue = vary(color.getBlue(), (int) (random >>> 20));
+				pixels[i] = (red << 16) + (green << 8) + blue;
 			}
+			texture = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+			texture.setRGB(0, 0, size, size, pixels, 0, size);
+			feltPaint = new TexturePaint(texture, new Rectangle(0, 0, size, size));
+		}
+
+		/**
+		 * Scales a color channel by a factor between .9 and 1 picked by the low 10 bits of <code>bits</code>
+		 */
+		private int vary(int channel, int bits) {
+			return channel * (922 + ((bits & 0x3ff) * 102 >> 10)) >> 10;
 		}
 
 		/* (non-Javadoc)
@@ -684,9 +927,21 @@ public class Project3 {
 		public void paintComponent(Graphics g) {
 			super.paintComponent(g);
 			Graphics2D g2d = (Graphics2D) g;
-			g2d.setPaint(new TexturePaint(texture, new Rectangle(0, 0, 128, 128)));
+			g2d.setPaint(feltPaint);
 			g2d.fillRect(0, 0, this.getWidth(), this.getHeight());
 		}
+
+		/* (non-Javadoc)
+		 * @see javax.swing.JComponent#paint(java.awt.Graphics)
+		 */
+		public void paint(Graphics g) {
+			super.paint(g);
+			// the felt and everything on it (the tableau included) has now been drawn once
+			if (!painted) {
+				painted = true;
+				firstFramePainted();
+			}
+		}
 	};
 	
 }
@@ -0,0 +1,472 @@
+package proj3;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Properties;
+
+/**
+ * Writes one record per game number of a survey to a file, in game number order, as the results come in. Workers
+ * hand results over with {@link #put(Solver.Result)} in any order within a window of game numbers; a writer thread
+ * puts them in order and writes them through a buffer, so nothing is held in memory beyond the window. A worker that
+ * gets more than a window ahead of the writer waits, which keeps a slow disk from being buried in results.
+ *
+ * Every so often ({@link #DEFAULT_CHECKPOINT_MILLIS} ms unless told otherwise) the file is flushed to disk and a
+ * checkpoint (<code>file.checkpoint</code>) records how many bytes and game numbers are committed; the checkpoint is
+ * replaced in one atomic rename, so there is always exactly one. After a crash, {@link #resume(File, int, long)} cuts
+ * the file back to the last checkpoint and carries on from the first game number it didn't cover.
+ *
+ * Records come in two formats:
+ * <ul>
+ * <li>{@link Format#NDJSON}: one JSON object per line, <code>{"game":n,"status":"SOLVED","maxScore":52,
+ * "moves":30,"nodes":n,"nanos":n}</code>;</li>
+ * <li>{@link Format#BINARY}: the 8 bytes <code>MCSRES01</code>, then {@link #RECORD_SIZE}-byte big-endian records
+ * of the game number (long), nodes (long), solve time in microseconds (int, capped), status ordinal (byte), max score
+ * (byte) and winning line length (short).</li>
+ * </ul>
+ */
+public final class ResultStream implements Closeable {
+
+	/**
+	 * Record layouts
+	 */
+	public enum Format {
+		/** newline-delimited JSON */
+		NDJSON,
+		/** fixed-width binary records */
+		BINARY
+	}
+
+	/**
+	 * Bytes per binary record
+	 */
+	public static final int RECORD_SIZE = 24;
+
+	/**
+	 * How often the file is flushed and a checkpoint written when not given, in milliseconds
+	 */
+	public static final long DEFAULT_CHECKPOINT_MILLIS = 30000;
+
+	/**
+	 * First bytes of a binary file
+	 */
+	private static final byte[] BINARY_HEADER = "MCSRES01".getBytes(Charset.forName("US-ASCII"));
+
+	/**
+	 * Size of the write buffer
+	 */
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private final File file;
+	private final File checkpoint;
+	private final Format format;
+	private final long first;
+	private final long last;
+	private final long checkpointMillis;
+	//results waiting to be written, by game number modulo the window
+	private final Solver.Result[] window;
+	//next game number to write; guarded by this
+	private long next;
+	//bytes in the file up to and including the record for next - 1, only touched by the writer thread
+	private long bytes;
+	private boolean closing;
+	private IOException failure;
+	private final FileOutputStream fileOut;
+	private final DataOutputStream out;
+	private final Thread writer;
+
+	//opens file for writing at its current length, which must match bytes
+	private ResultStream(File file, Format format, long first, long last, long next, long bytes, int windowSize,
+			long checkpointMillis) throws IOException {
+		if (checkpointMillis < 1) {
+			throw new IllegalArgumentException("checkpoint interval must be positive");
+		}
+		this.file = file;
+		this.checkpoint = new File(file.getPath() + ".checkpoint");
+		this.format = format;
+		this.first = first;
+		this.last = last;
+		this.checkpointMillis = checkpointMillis;
+		this.next = next;
+		this.bytes = bytes;
+		window = new Solver.Result[windowSize];
+		fileOut = new FileOutputStream(file, true);
+		out = new DataOutputStream(new BufferedOutputStream(fileOut, BUFFER_SIZE));
+		saveCheckpoint(next, bytes);
+		writer = new Thread(new Runnable() {
+			public void run() {
+				writeLoop();
+			}
+		}, "result-stream");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	//starts a new file for game numbers [first, last], replacing any earlier one, with room for windowSize results
+	//to arrive ahead of the one being waited for
+	public static ResultStream create(File file, Format format, long first, long last, int windowSize)
+			throws IOException {
+		return create(file, format, first, last, windowSize, DEFAULT_CHECKPOINT_MILLIS);
+	}
+
+	//as above, checkpointing every checkpointMillis
+	public static ResultStream create(File file, Format format, long first, long last, int windowSize,
+			long checkpointMillis) throws IOException {
+		OutputStream header = new FileOutputStream(file);
+		try {
+			if (format == Format.BINARY) {
+				header.write(BINARY_HEADER);
+			}
+		} finally {
+			header.close();
+		}
+		long bytes = format == Format.BINARY ? BINARY_HEADER.length : 0;
+		return new ResultStream(file, format, first, last, first, bytes, windowSize, checkpointMillis);
+	}
+
+	//reopens a file started by create, cutting it back to its last checkpoint
+	public static ResultStream resume(File file, int windowSize) throws IOException {
+		return resume(file, windowSize, DEFAULT_CHECKPOINT_MILLIS);
+	}
+
+	//as above, checkpointing every checkpointMillis from now on
+	public static ResultStream resume(File file, int windowSize, long checkpointMillis) throws IOException {
+		Properties saved = new Properties();
+		InputStream in = new FileInputStream(new File(file.getPath() + ".checkpoint"));
+		try {
+			saved.load(in);
+		} finally {
+			in.close();
+		}
+		Format format;
+		long first;
+		long last;
+		long next;
+		long bytes;
+		try {
+			format = Format.valueOf(saved.getProperty("format"));
+			first = Long.parseLong(saved.getProperty("first"));
+			last = Long.parseLong(saved.getProperty("last"));
+			next = Long.parseLong(saved.getProperty("next"));
+			bytes = Long.parseLong(saved.getProperty("bytes"));
+		} catch (RuntimeException e) {
+			throw new IOException("unreadable checkpoint for " + file, e);
+		}
+		RandomAccessFile data = new RandomAccessFile(file, "rw");
+		try {
+			if (data.length() < bytes) {
+				throw new IOException(file + " is shorter than its checkpoint");
+			}
+			// anything after the checkpoint may be half written
+			data.setLength(bytes);
+		} finally {
+			data.close();
+		}
+		return new ResultStream(file, format, first, last, next, bytes, windowSize, checkpointMillis);
+	}
+
+	//true if file has a checkpoint to resume from
+	public static boolean canResume(File file) {
+		return new File(file.getPath() + ".checkpoint").isFile();
+	}
+
+	//record layout of the file
+	public Format getFormat() {
+		return format;
+	}
+
+	//first game number of the survey
+	public long getFirst() {
+		return first;
+	}
+
+	//last game number of the survey
+	public long getLast() {
+		return last;
+	}
+
+	//first game number not yet written, where a resumed survey starts
+	public synchronized long getNext() {
+		return next;
+	}
+
+	//hands over a result, waiting while it is more than a window ahead of the next one to write
+	public void put(Solver.Result result) throws InterruptedException {
+		long gameNumber = result.getGameNumber();
+		synchronized (this) {
+			if (gameNumber < next || gameNumber > last) {
+				throw new IllegalArgumentException("game " + gameNumber + " is not waiting to be written");
+			}
+			while (gameNumber >= next + window.length && failure == null) {
+				wait();
+			}
+			checkFailure();
+			window[(int) (gameNumber % window.length)] = result;
+			if (gameNumber == next) {
+				notifyAll();
+			}
+		}
+	}
+
+	//makes every waiting and later put fail with cause, for when a worker dies and the result it owed will never come;
+	//close still commits what was written in order
+	public synchronized void abort(Throwable cause) {
+		if (failure == null) {
+			failure = new IOException("survey aborted", cause);
+		}
+		notifyAll();
+	}
+
+	//writes what can be written in order, checkpoints and stops the writer; call once the workers are done
+	public void close() throws IOException {
+		synchronized (this) {
+			closing = true;
+			notifyAll();
+		}
+		try {
+			writer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		synchronized (this) {
+			if (failure != null) {
+				throw failure;
+			}
+		}
+	}
+
+	//runs on the writer thread
+	private void writeLoop() {
+		Solver.Result[] batch = new Solver.Result[window.length];
+		long lastCheckpoint = System.nanoTime();
+		try {
+			while (true) {
+				int count = 0;
+				long written;
+				boolean stop;
+				synchronized (this) {
+					while (window[(int) (next % window.length)] == null && !closing && next <= last) {
+						wait(checkpointMillis);
+						if (System.nanoTime() - lastCheckpoint > checkpointMillis * 1000000L) {
+							break;
+						}
+					}
+					// take every result that is ready in order, freeing their slots for the workers
+					while (next <= last && window[(int) (next % window.length)] != null) {
+						int slot = (int) (next % window.length);
+						batch[count++] = window[slot];
+						window[slot] = null;
+						next++;
+					}
+					if (count > 0) {
+						notifyAll();
+					}
+					written = next;
+					stop = next > last || (closing && window[(int) (next % window.length)] == null);
+				}
+				for (int i = 0; i < count; i++) {
+					write(batch[i]);
+					batch[i] = null;
+				}
+				if (stop || System.nanoTime() - lastCheckpoint > checkpointMillis * 1000000L) {
+					commit(written);
+					lastCheckpoint = System.nanoTime();
+				}
+				if (stop) {
+					break;
+				}
+			}
+			out.close();
+		} catch (IOException e) {
+			fail(e);
+		} catch (InterruptedException e) {
+			fail(new IOException("result writer interrupted"));
+		}
+	}
+
+	//appends one record
+	private void write(Solver.Result result) throws IOException {
+		if (format == Format.BINARY) {
+			out.writeLong(result.getGameNumber());
+			out.writeLong(result.getNodes());
+			out.writeInt((int) Math.min(Integer.MAX_VALUE, result.getNanos() / 1000));
+			out.writeByte(result.getStatus().ordinal());
+			out.writeByte(result.getMaxScore());
+			out.writeShort(result.getMoveCount());
+			bytes += RECORD_SIZE;
+		} else {
+			byte[] line = ("{\"game\":" + result.getGameNumber() + ",\"status\":\"" + result.getStatus()
+					+ "\",\"maxScore\":" + result.getMaxScore() + ",\"moves\":" + result.getMoveCount() + ",\"nodes\":"
+					+ result.getNodes() + ",\"nanos\":" + result.getNanos() + "}\n").getBytes(Charset.forName("UTF-8"));
+			out.write(line);
+			bytes += line.length;
+		}
+	}
+
+	//forces everything written so far to disk, then records it in the checkpoint
+	private void commit(long written) throws IOException {
+		out.flush();
+		fileOut.getChannel().force(false);
+		saveCheckpoint(written, bytes);
+	}
+
+	//replaces the checkpoint file in one rename
+	private void saveCheckpoint(long written, long length) throws IOException {
+		Properties saved = new Properties();
+		saved.setProperty("format", format.name());
+		saved.setProperty("first", Long.toString(first));
+		saved.setProperty("last", Long.toString(last));
+		saved.setProperty("next", Long.toString(written));
+		saved.setProperty("bytes", Long.toString(length));
+		File temporary = new File(checkpoint.getPath() + ".tmp");
+		FileOutputStream stream = new FileOutputStream(temporary);
+		try {
+			saved.store(stream, "committed results in " + file.getName());
+			stream.getChannel().force(false);
+		} finally {
+			stream.close();
+		}
+		AtomicFiles.replace(temporary, checkpoint);
+	}
+
+	//records a writer failure and wakes any waiting workers so they see it
+	private synchronized void fail(IOException e) {
+		failure = e;
+		notifyAll();
+		try {
+			out.close();
+		} catch (IOException ignored) {
+			// already failing
+		}
+	}
+
+	//throws the writer's failure, if any, to a worker
+	private void checkFailure() {
+		if (failure != null) {
+			throw new UncheckedIOException(failure);
+		}
+	}
+
+	//a made-up result that is the same every time, unlike real solve times
+	private static Solver.Result testResult(long gameNumber) {
+		Solver.Status status = Solver.Status.values()[(int) (gameNumber % 3)];
+		return new Solver.Result(gameNumber, status, new int[status == Solver.Status.SOLVED ? 26 : 0],
+				(int) (gameNumber % 53), gameNumber * 7, gameNumber * 1000);
+	}
+
+	//writes testResult for every game in [0, last] to a new file at a steady pace until killed
+	private static void writeUntilKilled(File file, Format format, long last) throws IOException, InterruptedException {
+		ResultStream stream = create(file, format, 0, last, 64, 10);
+		for (long game = 0; game <= last; game++) {
+			stream.put(testResult(game));
+			if (game % 1000 == 0) {
+				Thread.sleep(5);
+			}
+		}
+		stream.close();
+	}
+
+	//next game number recorded in file's checkpoint, 0 if there is none yet
+	private static long checkpointedNext(File file) {
+		Properties saved = new Properties();
+		try {
+			InputStream in = new FileInputStream(new File(file.getPath() + ".checkpoint"));
+			try {
+				saved.load(in);
+			} finally {
+				in.close();
+			}
+			return Long.parseLong(saved.getProperty("next"));
+		} catch (IOException e) {
+			return 0;
+		} catch (RuntimeException e) {
+			return 0;
+		}
+	}
+
+	//runs another JVM writing file with writeUntilKilled, kills it once a checkpoint passes killAfter, then resumes
+	//the file here; returns true if it ends up the same as uninterrupted
+	private static boolean killAndResume(File file, File uninterrupted, Format format, long last, long killAfter)
+			throws IOException, InterruptedException {
+		// a checkpoint left by an earlier run would look like progress from the child
+		file.delete();
+		new File(file.getPath() + ".checkpoint").delete();
+		ResultStream whole = create(uninterrupted, format, 0, last, 64);
+		for (long game = 0; game <= last; game++) {
+			whole.put(testResult(game));
+		}
+		whole.close();
+
+		Process child = new ProcessBuilder(new File(System.getProperty("java.home"), "bin/java").getPath(), "-cp",
+				System.getProperty("java.class.path"), ResultStream.class.getName(), "write", file.getPath(),
+				format.name(), Long.toString(last)).inheritIO().start();
+		while (checkpointedNext(file) < killAfter && child.isAlive()) {
+			Thread.sleep(1);
+		}
+		// SIGKILL on Linux: nothing is flushed and the file may end in half a record
+		child.destroyForcibly().waitFor();
+
+		ResultStream resumed = resume(file, 64, 10);
+		long from = resumed.getNext();
+		System.out.println(from >= killAfter && from <= last); //expecting true here: the kill landed mid-run
+		for (long game = from; game <= last; game++) {
+			resumed.put(testResult(game));
+		}
+		resumed.close();
+		return Arrays.equals(Files.readAllBytes(file.toPath()), Files.readAllBytes(uninterrupted.toPath()));
+	}
+
+	//unit testing; "write file format last" is the process the test kills
+	public static void main(String[] args) throws IOException, InterruptedException {
+		if (args.length == 4 && args[0].equals("write")) {
+			writeUntilKilled(new File(args[1]), Format.valueOf(args[2]), Long.parseLong(args[3]));
+			return;
+		}
+		File directory = Files.createTempDirectory("resultstream").toFile();
+		File file = new File(directory, "results");
+		File uninterrupted = new File(directory, "uninterrupted");
+		try {
+			//expecting true here, for both formats
+			System.out.println(killAndResume(file, uninterrupted, Format.NDJSON, 199999, 20000));
+			System.out.println(killAndResume(file, uninterrupted, Format.BINARY, 199999, 20000));
+
+			// a worker waiting for the writer is released by abort instead of waiting forever
+			final ResultStream stream = create(file, Format.NDJSON, 0, 99, 4, 10);
+			final Throwable[] thrown = new Throwable[1];
+			Thread worker = new Thread(new Runnable() {
+				public void run() {
+					try {
+						stream.put(testResult(50));
+					} catch (Throwable e) {
+						thrown[0] = e;
+					}
+				}
+			});
+			worker.start();
+			Thread.sleep(50);
+			stream.abort(new IllegalStateException("worker died"));
+			worker.join(5000);
+			System.out.println(thrown[0] instanceof UncheckedIOException); //expecting true here
+			stream.put(testResult(0));
+			System.out.println("put after abort");
+		} catch (UncheckedIOException e) {
+			System.out.println(e.getCause().getMessage()); //expecting survey aborted here
+		} finally {
+			for (File made : directory.listFiles()) {
+				made.delete();
+			}
+			directory.delete();
+		}
+	}
+}
@@ -0,0 +1,415 @@
+package proj3;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * On-disk index of which game numbers can be won, read through a memory-mapped file so that any process can look a
+ * game up in constant time without reading the file onto the heap. The file holds:
+ * <ul>
+ * <li>a 64-byte header: the magic <code>MCSOLIDX</code>, a version, flags, the number of games and the shape of the
+ * games (tableau rows and columns, and decks in the shoe);</li>
+ * <li>a status section with 2 bits per game number, four games per byte, lowest game number in the low bits: 0 for
+ * not surveyed yet, then {@link Solver.Status#SOLVED}, {@link Solver.Status#UNSOLVABLE} and
+ * {@link Solver.Status#UNKNOWN};</li>
+ * <li>optionally, a score section with the best score the solver reached, one byte per game number.</li>
+ * </ul>
+ * A new index is all "not surveyed" and is filled one range at a time with {@link #fill(long, long, int, long)}, so a
+ * long survey can be spread over many runs. For the 1,000,000,000 game numbers <code>Project3</code> deals from, the
+ * status section takes 250 MB and the score section 1 GB. The same game number deals differently on a different
+ * shape, so readers check {@link #hasShape(int, int, int)} before trusting an index; <code>fill</code> runs the
+ * survey's 5x5 single-deck solver and only fills indexes of that shape, others are filled through
+ * {@link #put(Solver.Result)}.
+ *
+ * Lookups are thread safe; writes are serialized on the index.
+ */
+public final class SolvabilityIndex implements Closeable {
+
+	/**
+	 * File signature, <code>MCSOLIDX</code> in ASCII
+	 */
+	private static final long MAGIC = 0x4D43534F4C494458L;
+
+	/**
+	 * Version of the file layout
+	 */
+	private static final int VERSION = 2;
+
+	/**
+	 * Version before the header recorded decks; those files are all single-deck
+	 */
+	private static final int VERSION_SINGLE_DECK = 1;
+
+	/**
+	 * Flag set when the file has a score section
+	 */
+	private static final int FLAG_SCORES = 1;
+
+	/**
+	 * Bytes before the status section
+	 */
+	private static final int HEADER_SIZE = 64;
+
+	/**
+	 * Largest piece of the file mapped by one buffer; a buffer can't exceed 2 GB
+	 */
+	private static final int PART_BITS = 30;
+
+	/**
+	 * Status codes by <code>Solver.Status</code> ordinal, 0 is left for games not surveyed
+	 */
+	private static final Solver.Status[] STATUSES = Solver.Status.values();
+
+	/**
+	 * A section of the file mapped in pieces of at most 2^PART_BITS bytes
+	 */
+	private static final class Section {
+		private final MappedByteBuffer[] parts;
+
+		Section(FileChannel channel, long offset, long length, boolean writable) throws IOException {
+			int count = (int) ((length + (1L << PART_BITS) - 1) >>> PART_BITS);
+			parts = new MappedByteBuffer[count];
+			FileChannel.MapMode mode = writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY;
+			for (int i = 0; i < count; i++) {
+				long start = (long) i << PART_BITS;
+				parts[i] = channel.map(mode, offset + start, Math.min(1L << PART_BITS, length - start));
+			}
+		}
+
+		int get(long index) {
+			return parts[(int) (index >>> PART_BITS)].get((int) (index & ((1 << PART_BITS) - 1))) & 0xFF;
+		}
+
+		void put(long index, int value) {
+			parts[(int) (index >>> PART_BITS)].put((int) (index & ((1 << PART_BITS) - 1)), (byte) value);
+		}
+
+		void force() {
+			for (MappedByteBuffer part : parts) {
+				part.force();
+			}
+		}
+	}
+
+	private final RandomAccessFile file;
+	private final long games;
+	private final int rows;
+	private final int cols;
+	private final int decks;
+	private final boolean writable;
+	private final Section statuses;
+	private final Section scores;
+
+	//maps an existing file, checking its header
+	private SolvabilityIndex(RandomAccessFile file, boolean writable) throws IOException {
+		this.file = file;
+		this.writable = writable;
+		FileChannel channel = file.getChannel();
+		byte[] bytes = new byte[HEADER_SIZE];
+		try {
+			file.seek(0);
+			file.readFully(bytes);
+		} catch (EOFException e) {
+			throw new IOException("solvability index header is truncated", e);
+		}
+		ByteBuffer header = ByteBuffer.wrap(bytes);
+		if (header.getLong(0) != MAGIC) {
+			throw new IOException("not a solvability index");
+		}
+		int version = header.getInt(8);
+		if (version != VERSION && version != VERSION_SINGLE_DECK) {
+			throw new IOException("unsupported solvability index version " + version);
+		}
+		int flags = header.getInt(12);
+		games = header.getLong(16);
+		rows = header.getInt(24);
+		cols = header.getInt(28);
+		decks = version == VERSION_SINGLE_DECK ? 1 : header.getInt(32);
+		if (rows < 1 || cols < 1 || decks < 1) {
+			throw new IOException("solvability index has a bad shape " + rows + "x" + cols + ", " + decks + " decks");
+		}
+		long statusLength = statusBytes(games);
+		long expected = HEADER_SIZE + statusLength + ((flags & FLAG_SCORES) != 0 ? games : 0);
+		if (games < 0 || channel.size() < expected) {
+			throw new IOException("solvability index is truncated");
+		}
+		statuses = new Section(channel, HEADER_SIZE, statusLength, writable);
+		scores = (flags & FLAG_SCORES) != 0 ? new Section(channel, HEADER_SIZE + statusLength, games, writable) : null;
+	}
+
+	//creates an empty index for game numbers [0, games) of a rows x cols single-deck tableau, replacing any existing
+	//file
+	public static SolvabilityIndex create(File path, long games, int rows, int cols, boolean withScores)
+			throws IOException {
+		return create(path, games, rows, cols, 1, withScores);
+	}
+
+	//creates an empty index for game numbers [0, games) of a rows x cols tableau dealt from decks decks, replacing any
+	//existing file
+	public static SolvabilityIndex create(File path, long games, int rows, int cols, int decks, boolean withScores)
+			throws IOException {
+		if (games < 1) {
+			throw new IllegalArgumentException("an index needs at least one game");
+		}
+		if (rows < 1 || cols < 1 || decks < 1) {
+			throw new IllegalArgumentException("bad shape " + rows + "x" + cols + ", " + decks + " decks");
+		}
+		RandomAccessFile file = new RandomAccessFile(path, "rw");
+		try {
+			file.setLength(0);
+			// the sections start out as zeros, which is "not surveyed"
+			file.setLength(HEADER_SIZE + statusBytes(games) + (withScores ? games : 0));
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			header.putLong(0, MAGIC);
+			header.putInt(8, VERSION);
+			header.putInt(12, withScores ? FLAG_SCORES : 0);
+			header.putLong(16, games);
+			header.putInt(24, rows);
+			header.putInt(28, cols);
+			header.putInt(32, decks);
+			file.getChannel().write(header, 0);
+			return new SolvabilityIndex(file, true);
+		} catch (IOException e) {
+			file.close();
+			throw e;
+		}
+	}
+
+	//maps an existing index, read only unless writable
+	public static SolvabilityIndex open(File path, boolean writable) throws IOException {
+		RandomAccessFile file = new RandomAccessFile(path, writable ? "rw" : "r");
+		try {
+			return new SolvabilityIndex(file, writable);
+		} catch (IOException e) {
+			file.close();
+			throw e;
+		}
+	}
+
+	//bytes needed for 2 bits per game
+	private static long statusBytes(long games) {
+		return (games + 3) / 4;
+	}
+
+	//number of game numbers covered, [0, getGames())
+	public long getGames() {
+		return games;
+	}
+
+	//tableau rows of the games indexed
+	public int getRows() {
+		return rows;
+	}
+
+	//tableau columns of the games indexed
+	public int getColumns() {
+		return cols;
+	}
+
+	//decks in the shoe of the games indexed
+	public int getDecks() {
+		return decks;
+	}
+
+	//true if the index describes games of this shape
+	public boolean hasShape(int rows, int cols, int decks) {
+		return this.rows == rows && this.cols == cols && this.decks == decks;
+	}
+
+	//true if the index records scores as well as statuses
+	public boolean hasScores() {
+		return scores != null;
+	}
+
+	//true if the game number is covered by this index
+	public boolean contains(long gameNumber) {
+		return gameNumber >= 0 && gameNumber < games;
+	}
+
+	//recorded outcome for a game number, or null if it hasn't been surveyed
+	public Solver.Status getStatus(long gameNumber) {
+		checkRange(gameNumber);
+		int code = (statuses.get(gameNumber >>> 2) >>> ((gameNumber & 3) << 1)) & 3;
+		return code == 0 ? null : STATUSES[code - 1];
+	}
+
+	//best score recorded for a game number, or -1 if there is none
+	public int getMaxScore(long gameNumber) {
+		checkRange(gameNumber);
+		if (scores == null || getStatus(gameNumber) == null) {
+			return -1;
+		}
+		return scores.get(gameNumber);
+	}
+
+	//records one solver result
+	public synchronized void put(Solver.Result result) {
+		long gameNumber = result.getGameNumber();
+		checkRange(gameNumber);
+		if (!writable) {
+			throw new IllegalStateException("index was opened read only");
+		}
+		// four games share a byte, which is why writes are synchronized
+		int shift = (int) (gameNumber & 3) << 1;
+		int code = result.getStatus().ordinal() + 1;
+		int old = statuses.get(gameNumber >>> 2);
+		if (scores != null) {
+			scores.put(gameNumber, result.getMaxScore());
+		}
+		statuses.put(gameNumber >>> 2, (old & ~(3 << shift)) | code << shift);
+	}
+
+	//solves [first, last] on the given number of threads and records every result, returns the survey's totals
+	public Survey.Tally fill(long first, long last, int threads, long nodeLimit) {
+		checkRange(first);
+		checkRange(last);
+		if (!hasShape(5, 5, 1)) {
+			throw new IllegalStateException("surveys only solve 5x5 single-deck games, not " + rows + "x" + cols + " with "
+					+ decks + " decks");
+		}
+		return Survey.survey(first, last, threads, nodeLimit, new Survey.ResultListener() {
+			public void solved(Solver.Result result) {
+				put(result);
+			}
+		});
+	}
+
+	//writes any changes through to the file
+	public void force() {
+		if (writable) {
+			statuses.force();
+			if (scores != null) {
+				scores.force();
+			}
+		}
+	}
+
+	//flushes changes and closes the file; the mappings stay valid until they are garbage collected
+	public void close() throws IOException {
+		force();
+		file.close();
+	}
+
+	private void checkRange(long gameNumber) {
+		if (!contains(gameNumber)) {
+			throw new IndexOutOfBoundsException("game " + gameNumber + " is outside the index [0, " + games + ")");
+		}
+	}
+
+	//prints usage and quits
+	private static void usage() {
+		System.err.println("usage: java proj3.SolvabilityIndex create file games [-scores]");
+		System.err.println("       java proj3.SolvabilityIndex fill file first last [-threads n] [-nodes n]");
+		System.err.println("       java proj3.SolvabilityIndex query file game...");
+		System.err.println("       java proj3.SolvabilityIndex check");
+		System.exit(2);
+	}
+
+	//a result carrying just what the index stores
+	private static Solver.Result result(long gameNumber, Solver.Status status, int maxScore) {
+		return new Solver.Result(gameNumber, status, new int[0], maxScore, 0, 0);
+	}
+
+	//unit testing, on a scratch file
+	private static void check() throws IOException {
+		File path = File.createTempFile("solvability", ".idx");
+		try {
+			SolvabilityIndex index = create(path, 10, 5, 5, true);
+			// games 2 and 3 end the first byte, 4 and 5 start the second
+			index.put(result(2, Solver.Status.SOLVED, 52));
+			index.put(result(3, Solver.Status.UNSOLVABLE, 40));
+			index.put(result(4, Solver.Status.UNKNOWN, 44));
+			index.close();
+			index = open(path, false);
+			System.out.println(index.getStatus(1)); //expecting null here
+			System.out.println(index.getStatus(2)); //expecting SOLVED here
+			System.out.println(index.getStatus(3)); //expecting UNSOLVABLE here
+			System.out.println(index.getStatus(4)); //expecting UNKNOWN here
+			System.out.println(index.getStatus(5)); //expecting null here
+			System.out.println(index.getMaxScore(3) + " " + index.getMaxScore(5)); //expecting 40 -1 here
+			System.out.println(index.hasShape(5, 5, 1) + " " + index.hasShape(7, 7, 1)); //expecting true false here
+			index.close();
+			index = open(path, true);
+			// rewriting a game leaves the three others sharing its byte alone
+			index.put(result(3, Solver.Status.SOLVED, 52));
+			index.put(result(5, Solver.Status.UNSOLVABLE, 30));
+			System.out.println(index.getStatus(2) + " " + index.getStatus(3) + " " + index.getStatus(4) + " "
+					+ index.getStatus(5)); //expecting SOLVED SOLVED UNKNOWN UNSOLVABLE here
+			index.close();
+			RandomAccessFile cut = new RandomAccessFile(path, "rw");
+			cut.setLength(HEADER_SIZE / 2);
+			cut.close();
+			try {
+				open(path, false).close();
+				System.out.println("opened");
+			} catch (IOException e) {
+				System.out.println(e.getMessage()); //expecting solvability index header is truncated here
+			}
+		} finally {
+			path.delete();
+		}
+	}
+
+	//command line entry point
+	public static void main(String[] args) throws IOException {
+		if (args.length == 1 && args[0].equals("check")) {
+			check();
+			return;
+		}
+		if (args.length < 2) {
+			usage();
+		}
+		File path = new File(args[1]);
+		try {
+			if (args[0].equals("create") && args.length >= 3) {
+				boolean withScores = args.length > 3 && args[3].equals("-scores");
+				create(path, Long.parseLong(args[2]), 5, 5, withScores).close();
+			} else if (args[0].equals("fill") && args.length >= 4) {
+				long first = Long.parseLong(args[2]);
+				long last = Long.parseLong(args[3]);
+				int threads = Runtime.getRuntime().availableProcessors();
+				long nodeLimit = Solver.DEFAULT_NODE_LIMIT;
+				for (int i = 4; i + 1 < args.length; i += 2) {
+					if (args[i].equals("-threads")) {
+						threads = Integer.parseInt(args[i + 1]);
+					} else if (args[i].equals("-nodes")) {
+						nodeLimit = Long.parseLong(args[i + 1]);
+					} else {
+						usage();
+					}
+				}
+				SolvabilityIndex index = open(path, true);
+				try {
+					long start = System.nanoTime();
+					Survey.Tally tally = index.fill(first, last, threads, nodeLimit);
+					System.out.printf("filled %d games (%d solvable) in %.2f s%n", tally.getGames(), tally.getSolved(),
+							(System.nanoTime() - start) / 1e9);
+				} finally {
+					index.close();
+				}
+			} else if (args[0].equals("query")) {
+				SolvabilityIndex index = open(path, false);
+				try {
+					for (int i = 2; i < args.length; i++) {
+						long game = Long.parseLong(args[i]);
+						Solver.Status status = index.getStatus(game);
+						System.out.println("game " + game + ": " + (status == null ? "not surveyed" : status)
+								+ (index.hasScores() && status != null ? ", max score " + index.getMaxScore(game) : ""));
+					}
+				} finally {
+					index.close();
+				}
+			} else {
+				usage();
+			}
+		} catch (NumberFormatException e) {
+			usage();
+		}
+	}
+}
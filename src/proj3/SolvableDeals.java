@@ -0,0 +1,133 @@
+package proj3;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps a small pool of game numbers that are known to be winnable, so dealing one never waits for the solver. A
+ * background thread picks random game numbers from the same range <code>Project3</code> uses, checks each against a
+ * {@link SolvabilityIndex} when one is available and runs the {@link Solver} on anything the index hasn't surveyed,
+ * and queues the winnable ones. The queue is bounded, so the thread sleeps once it is full and wakes up as soon as a
+ * game number is taken.
+ *
+ * Any thread may take game numbers.
+ */
+public class SolvableDeals {
+
+	/**
+	 * Number of winnable game numbers kept ready
+	 */
+	public static final int DEFAULT_CAPACITY = 16;
+
+	/**
+	 * Game numbers are picked from [0, GAME_NUMBERS)
+	 */
+	private static final long GAME_NUMBERS = 1000000000L;
+
+	/**
+	 * Positions the solver may expand per deal; deals it can't settle within this are skipped, not offered
+	 */
+	private static final long NODE_LIMIT = Solver.DEFAULT_NODE_LIMIT;
+
+	private final BlockingQueue<Long> ready;
+	private final SolvabilityIndex index;
+	private final Thread producer;
+
+	//constructor, keeping up to capacity game numbers ready and consulting index first if it isn't null
+	public SolvableDeals(int capacity, SolvabilityIndex index) {
+		ready = new ArrayBlockingQueue<Long>(capacity);
+		this.index = index;
+		producer = new Thread(new Runnable() {
+			public void run() {
+				produce();
+			}
+		}, "solvable-deals");
+		producer.setDaemon(true);
+		producer.setPriority(Thread.MIN_PRIORITY);
+		producer.start();
+	}
+
+	//opens the index named by the proj3.index system property read only, or returns null if there is none
+	public static SolvabilityIndex openConfiguredIndex() {
+		String path = System.getProperty("proj3.index");
+		if (path == null) {
+			return null;
+		}
+		try {
+			SolvabilityIndex index = SolvabilityIndex.open(new File(path), false);
+			if (!index.hasShape(5, 5, 1)) {
+				// the same game numbers deal different games on another shape
+				System.err.println("ignoring solvability index " + path + ": it is for " + index.getRows() + "x"
+						+ index.getColumns() + " games with " + index.getDecks() + " decks");
+				index.close();
+				return null;
+			}
+			return index;
+		} catch (IOException e) {
+			System.err.println("can't open solvability index " + path + ": " + e.getMessage());
+			return null;
+		}
+	}
+
+	//a winnable game number, or -1 if none is ready and none turned up within timeoutMillis
+	public long next(long timeoutMillis) {
+		try {
+			Long gameNumber = ready.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+			return gameNumber == null ? -1 : gameNumber;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return -1;
+		}
+	}
+
+	//number of winnable game numbers ready right now
+	public int available() {
+		return ready.size();
+	}
+
+	//stops the background thread, game numbers already queued can still be taken
+	public void shutdown() {
+		producer.interrupt();
+	}
+
+	//runs on the producer thread until interrupted
+	private void produce() {
+		Random random = new Random();
+		Solver solver = null;
+		try {
+			while (!Thread.currentThread().isInterrupted()) {
+				long gameNumber = Math.abs(random.nextLong()) % GAME_NUMBERS;
+				Solver.Status status = index != null && index.contains(gameNumber) ? index.getStatus(gameNumber) : null;
+				if (status == null) {
+					// the solver's tables are only worth allocating once the index has missed
+					if (solver == null) {
+						solver = new Solver(5, 5, NODE_LIMIT);
+					}
+					status = solver.solve(gameNumber).getStatus();
+				}
+				if (status == Solver.Status.SOLVED) {
+					ready.put(gameNumber);
+				}
+			}
+		} catch (InterruptedException e) {
+			// shut down
+		}
+	}
+
+	//unit testing: times taking a few game numbers and re-solves them
+	public static void main(String[] args) {
+		SolvableDeals deals = new SolvableDeals(DEFAULT_CAPACITY, openConfiguredIndex());
+		Solver solver = new Solver();
+		for (int i = 0; i < 20; i++) {
+			long start = System.nanoTime();
+			long gameNumber = deals.next(5000);
+			long waited = (System.nanoTime() - start) / 1000;
+			System.out.println("game " + gameNumber + " after " + waited + " us: " + solver.solve(gameNumber).getStatus());
+		}
+		deals.shutdown();
+	}
+}
@@ -0,0 +1,287 @@
+package proj3;
+
+/**
+ * Headless exhaustive solver for Monte Carlo Solitaire deals. Given a game number it runs a depth-first search over
+ * every sequence of pair removals and consolidates, using a transposition table of positions already searched so that
+ * a position reached by two different move orders is only expanded once. Positions are keyed by their Zobrist hash.
+ * Pairs removed between two consolidates commute, so only one order of them is searched, and the pairs of each
+ * position are tried cluster-first (see <code>order</code>).
+ *
+ * A solver instance reuses its <code>Game</code> and tables between calls and is not thread safe; use one per thread.
+ */
+public class Solver {
+
+	/**
+	 * Default cap on the number of positions expanded for one deal
+	 */
+	public static final long DEFAULT_NODE_LIMIT = 2000000;
+
+	/**
+	 * Outcome of a search
+	 */
+	public enum Status {
+		/** every card can be removed */
+		SOLVED,
+		/** the whole tree was searched without clearing the deal */
+		UNSOLVABLE,
+		/** the node limit was hit before the search finished */
+		UNKNOWN
+	}
+
+	/**
+	 * The result of solving one deal
+	 */
+	public static final class Result {
+		private final long gameNumber;
+		private final Status status;
+		private final int[] moves;
+		private final int maxScore;
+		private final long nodes;
+		private final long nanos;
+
+		Result(long gameNumber, Status status, int[] moves, int maxScore, long nodes, long nanos) {
+			this.gameNumber = gameNumber;
+			this.status = status;
+			this.moves = moves;
+			this.maxScore = maxScore;
+			this.nodes = nodes;
+			this.nanos = nanos;
+		}
+
+		//game number that was searched
+		public long getGameNumber() {
+			return gameNumber;
+		}
+
+		//outcome of the search
+		public Status getStatus() {
+			return status;
+		}
+
+		//true if the deal can be cleared
+		public boolean isSolvable() {
+			return status == Status.SOLVED;
+		}
+
+		//winning line as Move encodings, empty unless solved
+		public int[] getMoves() {
+			return moves.clone();
+		}
+
+		//length of the winning line, 0 unless solved
+		public int getMoveCount() {
+			return moves.length;
+		}
+
+		//best score reached anywhere in the search
+		public int getMaxScore() {
+			return maxScore;
+		}
+
+		//number of positions expanded
+		public long getNodes() {
+			return nodes;
+		}
+
+		//time the search took, in nanoseconds
+		public long getNanos() {
+			return nanos;
+		}
+	}
+
+	private final Game game;
+	private final long nodeLimit;
+	//positions that have already been expanded
+	private final TranspositionTable seen;
+	//moves on the current search path
+	private int[] path = new int[64];
+	//legal moves of every position on the search path
+	private int[] stack = new int[256];
+	//ordering key of each move on the stack
+	private int[] keys = new int[256];
+	//the position before each move on the search path, see Game.saveTo
+	private long[] saved;
+	private final int savedSize;
+	private int stackTop;
+	private int depth;
+	private long nodes;
+	private int maxScore;
+
+	//constructor for the standard 5x5 tableau
+	public Solver() {
+		this(5, 5, DEFAULT_NODE_LIMIT);
+	}
+
+	//constructor, nodeLimit caps the positions expanded per deal
+	public Solver(int rows, int cols, long nodeLimit) {
+		this(rows, cols, 1, nodeLimit);
+	}
+
+	//constructor for deals from a shoe of several decks
+	public Solver(int rows, int cols, int decks, long nodeLimit) {
+		this.game = new Game(rows, cols, decks);
+		// backing up by copying a few words beats undoing through the journal on boards this small
+		game.setRecording(false);
+		savedSize = game.savedSize();
+		saved = new long[64 * savedSize];
+		this.nodeLimit = nodeLimit;
+		this.seen = new TranspositionTable(rows * cols);
+	}
+
+	//searches the deal for the given game number
+	public Result solve(long gameNumber) {
+		long start = System.nanoTime();
+		game.newGame(gameNumber);
+		seen.clear();
+		depth = 0;
+		stackTop = 0;
+		nodes = 0;
+		maxScore = 0;
+		boolean solved = search(Move.NONE);
+		seen.clear();
+		Status status;
+		int[] moves;
+		if (solved) {
+			status = Status.SOLVED;
+			moves = new int[depth];
+			System.arraycopy(path, 0, moves, 0, depth);
+		} else {
+			status = nodes >= nodeLimit ? Status.UNKNOWN : Status.UNSOLVABLE;
+			moves = new int[0];
+		}
+		return new Result(gameNumber, status, moves, maxScore, nodes, System.nanoTime() - start);
+	}
+
+	//depth first search from the game's current position, leaves the winning line in path; only pairs above bound
+	//are tried, see tryMove
+	private boolean search(int bound) {
+		if (game.isWin()) {
+			maxScore = game.getScore();
+			return true;
+		}
+		if (nodes >= nodeLimit) {
+			return false;
+		}
+		if (!seen.add(game, bound)) {
+			return false;
+		}
+		nodes++;
+		if (game.getScore() > maxScore) {
+			maxScore = game.getScore();
+		}
+
+		// copy this position's moves onto the move stack, since playing them changes the game's move index
+		int base = stackTop;
+		if (base + game.getMoveCount() > stack.length) {
+			int[] bigger = new int[Math.max(stack.length * 2, base + game.getMoveCount())];
+			System.arraycopy(stack, 0, bigger, 0, base);
+			stack = bigger;
+			keys = new int[bigger.length];
+		}
+		int count = game.getMoves(stack, base);
+		stackTop = base + count;
+		order(base, count);
+		for (int i = 0; i < count; i++) {
+			if (stack[base + i] > bound && tryMove(stack[base + i])) {
+				return true;
+			}
+		}
+		stackTop = base;
+		if (game.canConsolidate()) {
+			return tryMove(Move.CONSOLIDATE);
+		}
+		return false;
+	}
+
+	//sorts the moves on the stack from base so that pairs in clusters of the same rank come first, lowest cells first
+	//among equals. A card with several same-rank neighbours can be paired more than one way, and settling those
+	//choices early finds a winning line in about half the nodes of plain lowest-cells-first order.
+	private void order(int base, int count) {
+		Geometry geometry = game.getGeometry();
+		for (int i = base; i < base + count; i++) {
+			int move = stack[i];
+			int key = sameRankNeighbours(geometry, Move.first(move)) + sameRankNeighbours(geometry, Move.second(move));
+			// insertion sort, stable so ties keep the move index's order; there are rarely more than a few moves
+			int j = i;
+			while (j > base && keys[j - 1] < key) {
+				stack[j] = stack[j - 1];
+				keys[j] = keys[j - 1];
+				j--;
+			}
+			stack[j] = move;
+			keys[j] = key;
+		}
+	}
+
+	//number of cards next to pos with the same rank as the card at pos
+	private int sameRankNeighbours(Geometry geometry, int pos) {
+		int rank = PackedState.rankOf(game.getCard(pos));
+		int[] neighbours = geometry.neighbours(pos);
+		int count = 0;
+		for (int i = 0; i < neighbours.length; i++) {
+			int card = game.getCard(neighbours[i]);
+			if (card != PackedState.EMPTY && PackedState.rankOf(card) == rank) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	//plays move, searches below it and undoes it if it doesn't lead to a win.
+	//Between consolidates the pairs removed are all on different cells, and removing one never makes another legal,
+	//so they can be played in any order to the same effect. Only ascending order is searched: after a pair, the
+	//pairs below it are skipped until the next consolidate.
+	private boolean tryMove(int move) {
+		if (depth == path.length) {
+			int[] bigger = new int[path.length * 2];
+			System.arraycopy(path, 0, bigger, 0, path.length);
+			path = bigger;
+			long[] biggerSaved = new long[path.length * savedSize];
+			System.arraycopy(saved, 0, biggerSaved, 0, saved.length);
+			saved = biggerSaved;
+		}
+		game.saveTo(saved, depth * savedSize);
+		game.makeMove(move);
+		path[depth++] = move;
+		if (search(Move.isConsolidate(move) ? Move.NONE : move)) {
+			return true;
+		}
+		depth--;
+		game.restoreFrom(saved, depth * savedSize);
+		return false;
+	}
+
+	//unit testing
+	public static void main(String[] args) {
+		Solver solver = new Solver();
+		long first = args.length > 0 ? Long.parseLong(args[0]) : 0;
+		long last = args.length > 1 ? Long.parseLong(args[1]) : first + 9;
+		long start = System.nanoTime();
+		long nodes = 0;
+		long solvedNodes = 0;
+		int solved = 0;
+		for (long seed = first; seed <= last; seed++) {
+			Result result = solver.solve(seed);
+			nodes += result.getNodes();
+			if (result.isSolvable()) {
+				solved++;
+				solvedNodes += result.getNodes();
+			}
+			StringBuilder line = new StringBuilder();
+			line.append("game ").append(seed).append(": ").append(result.getStatus());
+			line.append(", max score ").append(result.getMaxScore());
+			line.append(", ").append(result.getNodes()).append(" nodes");
+			if (result.isSolvable()) {
+				line.append("\n ");
+				int[] moves = result.getMoves();
+				for (int i = 0; i < moves.length; i++) {
+					line.append(' ').append(Move.toString(moves[i], 5));
+				}
+			}
+			System.out.println(line);
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+		System.out.printf("%d of %d solved, %.0f nodes/s, %.1f nodes per solved deal%n", solved, last - first + 1,
+				nodes / seconds, solved == 0 ? 0.0 : (double) solvedNodes / solved);
+	}
+}
@@ -0,0 +1,312 @@
+package proj3;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Aggregate numbers for long headless runs, collected as games finish and readable at any time. For each policy (a
+ * {@link Player}, or the {@link Solver} in a survey) it keeps the games, wins, moves and the distribution of final
+ * scores, plus a {@link Histogram} of the time each game took; solver results also count statuses and nodes. Memory
+ * use is fixed when the collector is made: nothing is kept per game.
+ *
+ * Every counter is updated without locks, so worker threads record into one shared collector. Exports taken while a
+ * run is going are live snapshots, each figure up to date to within the games still being recorded.
+ */
+public final class Statistics {
+
+	/**
+	 * Name of the one policy of a collector made by {@link #forSolver(int)}
+	 */
+	public static final String SOLVER = "solver";
+
+	/**
+	 * Percentiles included in exports
+	 */
+	private static final double[] PERCENTILES = { 0.5, 0.9, 0.99, 0.999 };
+
+	//counters per policy, in STRIDE consecutive slots
+	private static final int GAMES = 0;
+	private static final int WINS = 1;
+	private static final int SCORE_TOTAL = 2;
+	private static final int MOVES = 3;
+	private static final int STRIDE = 4;
+
+	private final String[] policies;
+	private final int maxScore;
+	private final AtomicLongArray totals;
+	//count of each final score 0..maxScore per policy
+	private final AtomicLongArray scores;
+	//nanoseconds per game, per policy
+	private final Histogram[] nanos;
+	//solver results by Solver.Status ordinal, and positions expanded per deal
+	private final AtomicLongArray statuses = new AtomicLongArray(Solver.Status.values().length);
+	private final Histogram nodes = new Histogram();
+
+	//constructor for the named policies, whose scores run from 0 to maxScore
+	public Statistics(String[] policies, int maxScore) {
+		this.policies = policies.clone();
+		this.maxScore = maxScore;
+		totals = new AtomicLongArray(policies.length * STRIDE);
+		scores = new AtomicLongArray(policies.length * (maxScore + 1));
+		nanos = new Histogram[policies.length];
+		for (int i = 0; i < nanos.length; i++) {
+			nanos[i] = new Histogram();
+		}
+	}
+
+	//a collector for survey results, with the single policy SOLVER
+	public static Statistics forSolver(int maxScore) {
+		return new Statistics(new String[] { SOLVER }, maxScore);
+	}
+
+	//records one finished game for a policy
+	public void recordGame(int policy, int score, boolean won, long moves, long elapsedNanos) {
+		int base = policy * STRIDE;
+		totals.incrementAndGet(base + GAMES);
+		if (won) {
+			totals.incrementAndGet(base + WINS);
+		}
+		totals.addAndGet(base + SCORE_TOTAL, score);
+		totals.addAndGet(base + MOVES, moves);
+		scores.incrementAndGet(policy * (maxScore + 1) + Math.max(0, Math.min(score, maxScore)));
+		nanos[policy].record(elapsedNanos);
+	}
+
+	//records one solver result against policy 0, a win being a solved deal and the moves its winning line
+	public void recordSolve(Solver.Result result) {
+		recordGame(0, result.getMaxScore(), result.isSolvable(), result.getMoveCount(), result.getNanos());
+		statuses.incrementAndGet(result.getStatus().ordinal());
+		nodes.record(result.getNodes());
+	}
+
+	//names of the policies, in the order they are numbered
+	public String[] getPolicies() {
+		return policies.clone();
+	}
+
+	//number of games a policy finished
+	public long getGames(int policy) {
+		return totals.get(policy * STRIDE + GAMES);
+	}
+
+	//number of games a policy won
+	public long getWins(int policy) {
+		return totals.get(policy * STRIDE + WINS);
+	}
+
+	//share of games a policy won
+	public double getWinRate(int policy) {
+		long games = getGames(policy);
+		return games == 0 ? 0 : (double) getWins(policy) / games;
+	}
+
+	//number of games a policy finished with the given score
+	public long getScoreCount(int policy, int score) {
+		return scores.get(policy * (maxScore + 1) + score);
+	}
+
+	//time per game of a policy, in nanoseconds
+	public Histogram getNanos(int policy) {
+		return nanos[policy];
+	}
+
+	//positions the solver expanded per deal
+	public Histogram getNodes() {
+		return nodes;
+	}
+
+	//number of solver results with a status
+	public long getStatusCount(Solver.Status status) {
+		return statuses.get(status.ordinal());
+	}
+
+	//writes every figure as CSV rows of policy,metric,key,value
+	public void writeCsv(Writer out) throws IOException {
+		out.write("policy,metric,key,value\n");
+		for (int p = 0; p < policies.length; p++) {
+			String name = policies[p];
+			csv(out, name, "games", "", getGames(p));
+			csv(out, name, "wins", "", getWins(p));
+			csv(out, name, "winRate", "", format(getWinRate(p)));
+			csv(out, name, "averageScore", "", format(average(p, SCORE_TOTAL)));
+			csv(out, name, "averageMoves", "", format(average(p, MOVES)));
+			for (int score = 0; score <= maxScore; score++) {
+				if (getScoreCount(p, score) != 0) {
+					csv(out, name, "score", Integer.toString(score), getScoreCount(p, score));
+				}
+			}
+			csvHistogram(out, name, "nanos", nanos[p]);
+		}
+		if (nodes.getCount() != 0) {
+			for (Solver.Status status : Solver.Status.values()) {
+				csv(out, SOLVER, "status", status.name(), getStatusCount(status));
+			}
+			csvHistogram(out, SOLVER, "nodes", nodes);
+		}
+	}
+
+	//writes every figure as one JSON object
+	public void writeJson(Writer out) throws IOException {
+		out.write("{\n  \"policies\": [");
+		for (int p = 0; p < policies.length; p++) {
+			out.write(p == 0 ? "\n" : ",\n");
+			out.write("    {\"name\": \"" + escape(policies[p]) + "\", \"games\": " + getGames(p) + ", \"wins\": "
+					+ getWins(p) + ", \"winRate\": " + format(getWinRate(p)) + ", \"averageScore\": "
+					+ format(average(p, SCORE_TOTAL)) + ", \"averageMoves\": " + format(average(p, MOVES)) + ",\n");
+			out.write("     \"scores\": [");
+			for (int score = 0; score <= maxScore; score++) {
+				out.write((score == 0 ? "" : ", ") + getScoreCount(p, score));
+			}
+			out.write("],\n     \"nanos\": ");
+			jsonHistogram(out, nanos[p]);
+			out.write("}");
+		}
+		out.write("\n  ]");
+		if (nodes.getCount() != 0) {
+			out.write(",\n  \"solver\": {");
+			for (Solver.Status status : Solver.Status.values()) {
+				out.write("\"" + status.name().toLowerCase(Locale.ROOT) + "\": " + getStatusCount(status) + ", ");
+			}
+			out.write("\"nodes\": ");
+			jsonHistogram(out, nodes);
+			out.write("}");
+		}
+		out.write("\n}\n");
+	}
+
+	//writes a snapshot to file, as JSON if its name ends in .json and CSV otherwise; readers never see half a file,
+	//and writes from the exporter and the caller take turns
+	public synchronized void write(File file) throws IOException {
+		File temporary = new File(file.getPath() + ".tmp");
+		Writer out = new OutputStreamWriter(new FileOutputStream(temporary), Charset.forName("UTF-8"));
+		try {
+			if (file.getName().endsWith(".json")) {
+				writeJson(out);
+			} else {
+				writeCsv(out);
+			}
+		} finally {
+			out.close();
+		}
+		AtomicFiles.replace(temporary, file);
+	}
+
+	//starts a daemon thread rewriting file every periodMillis until interrupted, for watching a long run
+	public Thread startExporting(final File file, final long periodMillis) {
+		Thread exporter = new Thread(new Runnable() {
+			public void run() {
+				try {
+					while (true) {
+						Thread.sleep(periodMillis);
+						try {
+							write(file);
+						} catch (IOException e) {
+							System.err.println("can't write statistics: " + e.getMessage());
+						}
+					}
+				} catch (InterruptedException e) {
+					// run finished
+				}
+			}
+		}, "statistics-export");
+		exporter.setDaemon(true);
+		exporter.start();
+		return exporter;
+	}
+
+	//mean of one of a policy's totals per game
+	private double average(int policy, int slot) {
+		long games = getGames(policy);
+		return games == 0 ? 0 : (double) totals.get(policy * STRIDE + slot) / games;
+	}
+
+	private static void csv(Writer out, String policy, String metric, String key, Object value) throws IOException {
+		out.write(policy + "," + metric + "," + key + "," + value + "\n");
+	}
+
+	private static void csvHistogram(Writer out, String policy, String metric, Histogram histogram)
+			throws IOException {
+		csv(out, policy, metric, "count", histogram.getCount());
+		csv(out, policy, metric, "min", histogram.getMin());
+		csv(out, policy, metric, "mean", format(histogram.getMean()));
+		for (double percentile : PERCENTILES) {
+			csv(out, policy, metric, "p" + percentileName(percentile), histogram.getPercentile(percentile));
+		}
+		csv(out, policy, metric, "max", histogram.getMax());
+		for (int i = 0; i < histogram.buckets(); i++) {
+			if (histogram.getBucketCount(i) != 0) {
+				csv(out, policy, metric + "Bucket", Long.toString(Histogram.lowestIn(i)), histogram.getBucketCount(i));
+			}
+		}
+	}
+
+	//summary figures and the non-empty buckets as [lowest value, count] pairs
+	private static void jsonHistogram(Writer out, Histogram histogram) throws IOException {
+		out.write("{\"count\": " + histogram.getCount() + ", \"min\": " + histogram.getMin() + ", \"mean\": "
+				+ format(histogram.getMean()));
+		for (double percentile : PERCENTILES) {
+			out.write(", \"p" + percentileName(percentile) + "\": " + histogram.getPercentile(percentile));
+		}
+		out.write(", \"max\": " + histogram.getMax() + ", \"buckets\": [");
+		boolean first = true;
+		for (int i = 0; i < histogram.buckets(); i++) {
+			if (histogram.getBucketCount(i) != 0) {
+				out.write((first ? "" : ", ") + "[" + Histogram.lowestIn(i) + ", " + histogram.getBucketCount(i) + "]");
+				first = false;
+			}
+		}
+		out.write("]}");
+	}
+
+	//50 for 0.5, 999 for 0.999
+	private static String percentileName(double percentile) {
+		return format(percentile * 100).replace(".", "");
+	}
+
+	//a double with no exponent and no locale-specific separators
+	private static String format(double value) {
+		String text = String.format(Locale.ROOT, "%.6f", value);
+		text = text.replaceAll("0+$", "");
+		return text.endsWith(".") ? text.substring(0, text.length() - 1) : text;
+	}
+
+	//escapes a policy name for a JSON string
+	private static String escape(String text) {
+		return text.replace("\\", "\\\\").replace("\"", "\\\"");
+	}
+
+	//unit testing
+	public static void main(String[] args) throws IOException {
+		Statistics statistics = new Statistics(new String[] { "greedy", "rollout" }, 52);
+		statistics.recordGame(0, 52, true, 26, 1000);
+		statistics.recordGame(0, 40, false, 20, 3000);
+		statistics.recordGame(1, 52, true, 30, 2000000);
+		System.out.println(statistics.getGames(0) + " " + statistics.getWins(0) + " " + statistics.getWinRate(0));
+		//expecting 2 1 0.5 here
+		System.out.println(statistics.getScoreCount(0, 40) + " " + statistics.getScoreCount(1, 40)); //expecting 1 0 here
+		StringWriter csv = new StringWriter();
+		statistics.writeCsv(csv);
+		//expecting a policy,metric,key,value header, then rows such as greedy,averageScore,,46 and rollout,score,52,1
+		//and no solver rows
+		System.out.print(csv);
+		StringWriter json = new StringWriter();
+		statistics.writeJson(json);
+		//expecting two policies, greedy with "winRate": 0.5 and "averageMoves": 23, and no "solver" object
+		System.out.print(json);
+
+		Statistics solver = forSolver(52);
+		solver.recordSolve(new Solver.Result(7, Solver.Status.SOLVED, new int[30], 52, 1200, 5000));
+		solver.recordSolve(new Solver.Result(8, Solver.Status.UNSOLVABLE, new int[0], 44, 800, 4000));
+		json = new StringWriter();
+		solver.writeJson(json);
+		//expecting "solver": {"solved": 1, "unsolvable": 1, "unknown": 0, "nodes": {"count": 2, ...}}
+		System.out.print(json);
+	}
+}
@@ -0,0 +1,391 @@
+package proj3;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Command line survey of which game numbers can be won. A range of game numbers is split across a
+ * <code>ForkJoinPool</code> and each deal is run through a {@link Solver}; since every deal is solved independently
+ * and deterministically the totals do not depend on the number of threads used.
+ *
+ * <pre>
+ * java proj3.Survey [first] [last] [-threads n] [-nodes n] [-stats file.json|file.csv]
+ *                    [-out file [-format ndjson|binary] [-resume] [-checkpoint ms]]
+ * </pre>
+ *
+ * The range defaults to 0..999,999,999, the same range <code>Project3</code> picks random games from. With
+ * <code>-stats</code> the score distribution, solve times and node counts are collected in {@link Statistics} and
+ * written to the file every {@link #EXPORT_MILLIS} ms while the survey runs, and once more at the end. With
+ * <code>-out</code> every deal's result is streamed to a file in game number order through a {@link ResultStream};
+ * <code>-resume</code> picks an interrupted survey up from that file's last checkpoint, keeping its range and format;
+ * <code>-checkpoint</code> sets how often the file is checkpointed.
+ * To spread one survey over several processes or machines, see {@link Coordinator}.
+ */
+public class Survey {
+
+	/**
+	 * Largest range of game numbers handed to a single task without splitting it further
+	 */
+	private static final int CHUNK_SIZE = 256;
+
+	/**
+	 * How often a running survey rewrites its statistics file, in milliseconds
+	 */
+	public static final long EXPORT_MILLIS = 10000;
+
+	/**
+	 * Receives every solver result as it is produced, from whichever worker thread solved it
+	 */
+	public interface ResultListener {
+
+		/**
+		 * Called once per game number surveyed, in no particular order; must be thread safe
+		 *
+		 * @param result
+		 *            the solver's result for one deal
+		 */
+		void solved(Solver.Result result);
+	}
+
+	/**
+	 * Running totals for a range of game numbers
+	 */
+	public static final class Tally {
+		private long games;
+		private long solved;
+		private long unsolvable;
+		private long unknown;
+		private long scoreTotal;
+		private long nodes;
+		private long solvedNodes;
+
+		//records one solver result
+		void add(Solver.Result result) {
+			games++;
+			switch (result.getStatus()) {
+			case SOLVED:
+				solved++;
+				solvedNodes += result.getNodes();
+				break;
+			case UNSOLVABLE:
+				unsolvable++;
+				break;
+			default:
+				unknown++;
+			}
+			scoreTotal += result.getMaxScore();
+			nodes += result.getNodes();
+		}
+
+		//folds another tally into this one
+		void add(Tally other) {
+			games += other.games;
+			solved += other.solved;
+			unsolvable += other.unsolvable;
+			unknown += other.unknown;
+			scoreTotal += other.scoreTotal;
+			nodes += other.nodes;
+			solvedNodes += other.solvedNodes;
+		}
+
+		//number of deals surveyed
+		public long getGames() {
+			return games;
+		}
+
+		//number of deals that can be cleared
+		public long getSolved() {
+			return solved;
+		}
+
+		//number of deals proven unwinnable
+		public long getUnsolvable() {
+			return unsolvable;
+		}
+
+		//number of deals that hit the node limit
+		public long getUnknown() {
+			return unknown;
+		}
+
+		//mean of the best score reached in each deal
+		public double getAverageMaxScore() {
+			return games == 0 ? 0 : (double) scoreTotal / games;
+		}
+
+		//positions expanded across every deal
+		public long getNodes() {
+			return nodes;
+		}
+
+		//mean positions expanded to solve a deal that can be cleared
+		public double getAverageNodesPerSolved() {
+			return solved == 0 ? 0 : (double) solvedNodes / solved;
+		}
+
+		//the totals as space separated numbers, for sending to another process
+		String encode() {
+			return games + " " + solved + " " + unsolvable + " " + unknown + " " + scoreTotal + " " + nodes + " "
+					+ solvedNodes;
+		}
+
+		//totals written by encode
+		static Tally decode(String text) {
+			String[] fields = text.trim().split(" ");
+			if (fields.length != 7) {
+				throw new IllegalArgumentException("not a tally: " + text);
+			}
+			Tally tally = new Tally();
+			tally.games = Long.parseLong(fields[0]);
+			tally.solved = Long.parseLong(fields[1]);
+			tally.unsolvable = Long.parseLong(fields[2]);
+			tally.unknown = Long.parseLong(fields[3]);
+			tally.scoreTotal = Long.parseLong(fields[4]);
+			tally.nodes = Long.parseLong(fields[5]);
+			tally.solvedNodes = Long.parseLong(fields[6]);
+			return tally;
+		}
+	}
+
+	/**
+	 * Solves every game number in [first, last], splitting large ranges in half
+	 */
+	private static final class RangeTask extends RecursiveTask<Tally> {
+		private static final long serialVersionUID = 1L;
+
+		private final long first;
+		private final long last;
+		private final ThreadLocal<Solver> solvers;
+		private final ResultListener listener;
+
+		RangeTask(long first, long last, ThreadLocal<Solver> solvers, ResultListener listener) {
+			this.first = first;
+			this.last = last;
+			this.solvers = solvers;
+			this.listener = listener;
+		}
+
+		protected Tally compute() {
+			if (last - first < CHUNK_SIZE) {
+				Solver solver = solvers.get();
+				Tally tally = new Tally();
+				for (long seed = first; seed <= last; seed++) {
+					Solver.Result result = solver.solve(seed);
+					tally.add(result);
+					if (listener != null) {
+						listener.solved(result);
+					}
+				}
+				return tally;
+			}
+			long middle = first + (last - first) / 2;
+			RangeTask low = new RangeTask(first, middle, solvers, listener);
+			RangeTask high = new RangeTask(middle + 1, last, solvers, listener);
+			low.fork();
+			Tally tally = high.compute();
+			tally.add(low.join());
+			return tally;
+		}
+	}
+
+	//surveys [first, last] on the given number of threads with a node limit per deal
+	public static Tally survey(long first, long last, int threads, long nodeLimit) {
+		return survey(first, last, threads, nodeLimit, null);
+	}
+
+	//as above, also handing every result to listener (which may be null)
+	public static Tally survey(long first, long last, int threads, final long nodeLimit, ResultListener listener) {
+		ThreadLocal<Solver> solvers = new ThreadLocal<Solver>() {
+			protected Solver initialValue() {
+				return new Solver(5, 5, nodeLimit);
+			}
+		};
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try {
+			return pool.invoke(new RangeTask(first, last, solvers, listener));
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	//solves every game number still to be written to out, on the given number of threads with a node limit per deal,
+	//also handing each result to listener (which may be null); returns the totals for the game numbers solved here.
+	//Threads take chunks in ascending order, so the result the stream is waiting for is always being worked on
+	public static Tally sweep(final ResultStream out, int threads, final long nodeLimit, final ResultListener listener)
+			throws IOException {
+		final AtomicLong nextChunk = new AtomicLong(out.getNext());
+		final Tally total = new Tally();
+		final AtomicReference<RuntimeException> failure = new AtomicReference<RuntimeException>();
+		Thread[] workers = new Thread[threads];
+		for (int t = 0; t < threads; t++) {
+			workers[t] = new Thread(new Runnable() {
+				public void run() {
+					Solver solver = new Solver(5, 5, nodeLimit);
+					Tally tally = new Tally();
+					try {
+						long first;
+						while (failure.get() == null && (first = nextChunk.getAndAdd(CHUNK_SIZE)) <= out.getLast()) {
+							long last = Math.min(out.getLast(), first + CHUNK_SIZE - 1);
+							for (long seed = first; seed <= last; seed++) {
+								Solver.Result result = solver.solve(seed);
+								tally.add(result);
+								if (listener != null) {
+									listener.solved(result);
+								}
+								out.put(result);
+							}
+						}
+					} catch (InterruptedException e) {
+						// stop early, the stream commits what was finished in order
+					} catch (RuntimeException e) {
+						if (failure.compareAndSet(null, e)) {
+							// the result this worker owed will never come, so wake the others waiting on the stream
+							out.abort(e);
+						}
+					}
+					synchronized (total) {
+						total.add(tally);
+					}
+				}
+			}, "survey-" + t);
+			workers[t].start();
+		}
+		try {
+			for (Thread worker : workers) {
+				worker.join();
+			}
+		} catch (InterruptedException e) {
+			for (Thread worker : workers) {
+				worker.interrupt();
+			}
+			Thread.currentThread().interrupt();
+		}
+		try {
+			out.close();
+		} catch (IOException e) {
+			// after an abort the stream reports it, but the worker's own exception says more
+			if (failure.get() == null) {
+				throw e;
+			}
+		}
+		if (failure.get() != null) {
+			throw failure.get();
+		}
+		return total;
+	}
+
+	//window that lets every worker run a few chunks ahead of the result the stream is waiting for
+	public static int windowFor(int threads) {
+		return threads * CHUNK_SIZE * 4;
+	}
+
+	//prints usage and quits
+	private static void usage() {
+		System.err.println("usage: java proj3.Survey [first] [last] [-threads n] [-nodes n] [-stats file]");
+		System.err.println("                         [-out file [-format ndjson|binary] [-resume] [-checkpoint ms]]");
+		System.exit(2);
+	}
+
+	//command line entry point
+	public static void main(String[] args) throws IOException {
+		long first = 0;
+		long last = 999999999L;
+		int threads = Runtime.getRuntime().availableProcessors();
+		long nodeLimit = Solver.DEFAULT_NODE_LIMIT;
+		File statsFile = null;
+		File outFile = null;
+		ResultStream.Format format = ResultStream.Format.NDJSON;
+		boolean resume = false;
+		long checkpointMillis = ResultStream.DEFAULT_CHECKPOINT_MILLIS;
+		int position = 0;
+		try {
+			for (int i = 0; i < args.length; i++) {
+				if (args[i].equals("-threads") && i + 1 < args.length) {
+					threads = Integer.parseInt(args[++i]);
+				} else if (args[i].equals("-nodes") && i + 1 < args.length) {
+					nodeLimit = Long.parseLong(args[++i]);
+				} else if (args[i].equals("-stats") && i + 1 < args.length) {
+					statsFile = new File(args[++i]);
+				} else if (args[i].equals("-out") && i + 1 < args.length) {
+					outFile = new File(args[++i]);
+				} else if (args[i].equals("-format") && i + 1 < args.length) {
+					format = ResultStream.Format.valueOf(args[++i].toUpperCase(Locale.ROOT));
+				} else if (args[i].equals("-resume")) {
+					resume = true;
+				} else if (args[i].equals("-checkpoint") && i + 1 < args.length) {
+					checkpointMillis = Long.parseLong(args[++i]);
+				} else if (position == 0) {
+					first = Long.parseLong(args[i]);
+					position++;
+				} else if (position == 1) {
+					last = Long.parseLong(args[i]);
+					position++;
+				} else {
+					usage();
+				}
+			}
+		} catch (IllegalArgumentException e) {
+			// includes NumberFormatException and unknown formats
+			usage();
+		}
+		if (first < 0 || last < first || threads < 1 || nodeLimit < 1 || checkpointMillis < 1
+				|| (resume && outFile == null)) {
+			usage();
+		}
+
+		ResultStream stream = null;
+		if (outFile != null && resume && ResultStream.canResume(outFile)) {
+			stream = ResultStream.resume(outFile, windowFor(threads), checkpointMillis);
+			first = stream.getNext();
+			last = stream.getLast();
+			System.out.println("Resuming " + outFile + " from game " + first);
+		} else if (outFile != null) {
+			stream = ResultStream.create(outFile, format, first, last, windowFor(threads), checkpointMillis);
+		}
+		Statistics statistics = null;
+		Thread exporter = null;
+		ResultListener listener = null;
+		if (statsFile != null) {
+			final Statistics recorder = Statistics.forSolver(Card.CARDS);
+			statistics = recorder;
+			exporter = statistics.startExporting(statsFile, EXPORT_MILLIS);
+			listener = new ResultListener() {
+				public void solved(Solver.Result result) {
+					recorder.recordSolve(result);
+				}
+			};
+		}
+
+		System.out.println("Surveying games " + first + " to " + last + " on " + threads + " threads");
+		long start = System.nanoTime();
+		Tally tally = stream != null ? sweep(stream, threads, nodeLimit, listener)
+				: survey(first, last, threads, nodeLimit, listener);
+		if (statistics != null) {
+			exporter.interrupt();
+			statistics.write(statsFile);
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+		if (tally.getGames() == 0) {
+			System.out.println("nothing left to survey");
+			return;
+		}
+		report(tally, nodeLimit, seconds);
+	}
+
+	//prints a survey's totals
+	static void report(Tally tally, long nodeLimit, double seconds) {
+		System.out.printf("games:         %d%n", tally.getGames());
+		System.out.printf("solvable:      %d (%.3f%%)%n", tally.getSolved(), 100.0 * tally.getSolved() / tally.getGames());
+		System.out.printf("unsolvable:    %d%n", tally.getUnsolvable());
+		System.out.printf("unknown:       %d (node limit %d)%n", tally.getUnknown(), nodeLimit);
+		System.out.printf("avg max score: %.3f%n", tally.getAverageMaxScore());
+		System.out.printf("nodes/solved:  %.1f%n", tally.getAverageNodesPerSolved());
+		System.out.printf("elapsed:       %.2f s%n", seconds);
+		System.out.printf("throughput:    %.1f games/s, %.0f nodes/s%n", tally.getGames() / seconds, tally.getNodes() / seconds);
+	}
+}
@@ -0,0 +1,167 @@
+package proj3;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.Charset;
+
+/**
+ * Surveys shards handed out by a {@link Coordinator}, on as many threads as the machine has cores, until the
+ * coordinator says the survey is finished.
+ *
+ * <pre>
+ * java proj3.SurveyWorker [host] [-port n] [-threads n]
+ * </pre>
+ *
+ * The host defaults to this machine. Start as many workers as there are machines (or, on one machine, as many as it
+ * takes to keep it busy); they may join and leave at any time. A worker that loses its coordinator keeps trying to
+ * reach it for {@link Coordinator#TIMEOUT_MILLIS} ms, so a coordinator restarted from its state file picks its
+ * workers back up.
+ */
+public class SurveyWorker {
+
+	/**
+	 * How long to wait before asking again when every shard is out
+	 */
+	private static final long WAIT_MILLIS = 1000;
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private final String host;
+	private final int port;
+	private final int threads;
+
+	//constructor for a worker of the coordinator at host:port
+	public SurveyWorker(String host, int port, int threads) {
+		this.host = host;
+		this.port = port;
+		this.threads = threads;
+	}
+
+	//works until the coordinator is finished, or can't be reached for Coordinator.TIMEOUT_MILLIS
+	public void run() throws InterruptedException {
+		long lost = System.nanoTime();
+		while (true) {
+			try {
+				Socket socket = new Socket(host, port);
+				try {
+					if (work(socket)) {
+						return;
+					}
+				} finally {
+					socket.close();
+					// the coordinator was there until now, however the connection ended, so give it the full
+					// timeout to come back
+					lost = System.nanoTime();
+				}
+				System.err.println("lost the coordinator, trying again");
+			} catch (IOException e) {
+				// coordinator not up yet, restarting, or gone for good
+			}
+			if (System.nanoTime() - lost > Coordinator.TIMEOUT_MILLIS * 1000000L) {
+				System.err.println("can't reach a coordinator at " + host + ":" + port);
+				return;
+			}
+			Thread.sleep(WAIT_MILLIS);
+		}
+	}
+
+	//surveys shards over one connection, returns true once the coordinator is finished
+	private boolean work(Socket socket) throws IOException, InterruptedException {
+		BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), UTF8));
+		final PrintWriter out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), UTF8));
+		send(out, "HELLO " + InetAddress.getLocalHost().getHostName() + " " + threads);
+		while (true) {
+			send(out, "NEXT");
+			String line = in.readLine();
+			if (line == null) {
+				return false;
+			} else if (line.equals("DONE")) {
+				return true;
+			} else if (line.equals("WAIT")) {
+				Thread.sleep(WAIT_MILLIS);
+				continue;
+			} else if (!line.startsWith("SHARD ")) {
+				throw new IOException("unexpected message: " + line);
+			}
+			String[] fields = line.split(" ");
+			int shard = Integer.parseInt(fields[1]);
+			long first = Long.parseLong(fields[2]);
+			long last = Long.parseLong(fields[3]);
+			long nodeLimit = Long.parseLong(fields[4]);
+			System.out.println("shard " + shard + ": games " + first + " to " + last);
+			// the survey keeps this thread busy, so a second one tells the coordinator we're still here
+			Thread heartbeat = new Thread(new Runnable() {
+				public void run() {
+					try {
+						while (true) {
+							Thread.sleep(Coordinator.HEARTBEAT_MILLIS);
+							send(out, "PING");
+						}
+					} catch (InterruptedException e) {
+						// shard finished
+					}
+				}
+			}, "survey-heartbeat");
+			heartbeat.setDaemon(true);
+			heartbeat.start();
+			Survey.Tally tally;
+			try {
+				tally = Survey.survey(first, last, threads, nodeLimit);
+			} finally {
+				heartbeat.interrupt();
+				heartbeat.join();
+			}
+			send(out, "RESULT " + shard + " " + tally.encode());
+			if (out.checkError()) {
+				return false;
+			}
+		}
+	}
+
+	//writes one line, from either the worker or the heartbeat thread
+	private static void send(PrintWriter out, String line) {
+		synchronized (out) {
+			out.print(line + "\n");
+			out.flush();
+		}
+	}
+
+	//prints usage and quits
+	private static void usage() {
+		System.err.println("usage: java proj3.SurveyWorker [host] [-port n] [-threads n]");
+		System.exit(2);
+	}
+
+	//command line entry point
+	public static void main(String[] args) throws InterruptedException {
+		String host = InetAddress.getLoopbackAddress().getHostAddress();
+		int port = Coordinator.DEFAULT_PORT;
+		int threads = Runtime.getRuntime().availableProcessors();
+		int position = 0;
+		try {
+			for (int i = 0; i < args.length; i++) {
+				if (args[i].equals("-port") && i + 1 < args.length) {
+					port = Integer.parseInt(args[++i]);
+				} else if (args[i].equals("-threads") && i + 1 < args.length) {
+					threads = Integer.parseInt(args[++i]);
+				} else if (position == 0) {
+					host = args[i];
+					position++;
+				} else {
+					usage();
+				}
+			}
+		} catch (NumberFormatException e) {
+			usage();
+		}
+		if (threads < 1) {
+			usage();
+		}
+		new SurveyWorker(host, port, threads).run();
+	}
+}
@@ -0,0 +1,425 @@
+package proj3;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Insets;
+import java.awt.Rectangle;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+
+import javax.swing.Icon;
+import javax.swing.JComponent;
+import javax.swing.border.Border;
+
+/**
+ * A tableau that paints every card itself instead of holding a component per cell. It lays cards out the same way as
+ * <code>ClickableImageGrid</code> filled with <code>ClickableImage</code>s, but changing a card, border or click state
+ * only repaints that card's rectangle and never causes a layout pass.
+ *
+ * Mouse events are turned into row/column events for a single {@link CellListener}, and only cells showing a card
+ * receive them, as only slots holding a <code>ClickableImage</code> would.
+ *
+ * @see proj3.ClickableImageGrid
+ */
+public class TableauPanel extends JComponent {
+
+	/**
+	 * A class version number, per <code>Serializable</code>'s recommendation.
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Space between neighbouring slots, as in <code>ClickableImageGrid</code>
+	 */
+	private static final int SLOT_GAP = 6;
+
+	/**
+	 * Space around a card within its slot, as a <code>FlowLayout</code> leaves around a label
+	 */
+	private static final int CARD_GAP = 5;
+
+	/**
+	 * Receives mouse activity on the cards of a <code>TableauPanel</code>
+	 */
+	public interface CellListener {
+
+		/**
+		 * The card at <code>row</code>/<code>column</code> was clicked
+		 *
+		 * @param row
+		 *            the row number
+		 * @param column
+		 *            the column number
+		 */
+		void cellClicked(int row, int column);
+
+		/**
+		 * The mouse moved onto the card at <code>row</code>/<code>column</code>
+		 *
+		 * @param row
+		 *            the row number
+		 * @param column
+		 *            the column number
+		 */
+		void cellEntered(int row, int column);
+
+		/**
+		 * The mouse left the card at <code>row</code>/<code>column</code>
+		 *
+		 * @param row
+		 *            the row number
+		 * @param column
+		 *            the column number
+		 */
+		void cellExited(int row, int column);
+	}
+
+	/**
+	 * The number of rows in the grid.
+	 */
+	private final int rows;
+
+	/**
+	 * The number of columns in the grid.
+	 */
+	private final int columns;
+
+	/**
+	 * Size of the area a card and its border take up
+	 */
+	private final int cardWidth;
+	private final int cardHeight;
+
+	/**
+	 * The icon in each cell, <code>null</code> for an empty cell
+	 */
+	private final Icon[] icons;
+
+	/**
+	 * The border drawn around each cell's card, which also sets where the icon sits within it
+	 */
+	private final Border[] borders;
+
+	/**
+	 * Whether each cell's card is currently clicked
+	 */
+	private final boolean[] clicked;
+
+	/**
+	 * Whether each cell has ever held a card; emptied cells keep a background-colored blank, like the placeholder
+	 * <code>ClickableImageGrid</code> leaves behind
+	 */
+	private final boolean[] used;
+
+	/**
+	 * The border newly placed cards get
+	 */
+	private final Border defaultBorder;
+
+	/**
+	 * Receives clicks and hovers, may be <code>null</code>
+	 */
+	private CellListener listener;
+
+	/**
+	 * The cell under the mouse, -1 when the mouse is not over a card
+	 */
+	private int hover = -1;
+
+	/**
+	 * Constructs a tableau for cards of the given size.
+	 *
+	 * @param rows
+	 *            the number of rows
+	 * @param columns
+	 *            the number of columns
+	 * @param iconWidth
+	 *            the width of the card images
+	 * @param iconHeight
+	 *            the height of the card images
+	 * @param defaultBorder
+	 *            the border cards get when placed, which fixes the space around each image
+	 */
+	public TableauPanel(int rows, int columns, int iconWidth, int iconHeight, Border defaultBorder) {
+		this.rows = rows;
+		this.columns = columns;
+		this.defaultBorder = defaultBorder;
+		Insets insets = defaultBorder.getBorderInsets(this);
+		cardWidth = iconWidth + insets.left + insets.right;
+		cardHeight = iconHeight + insets.top + insets.bottom;
+		icons = new Icon[rows * columns];
+		borders = new Border[rows * columns];
+		clicked = new boolean[rows * columns];
+		used = new boolean[rows * columns];
+
+		MouseAdapter mouse = new MouseAdapter() {
+			public void mouseClicked(MouseEvent e) {
+				int cell = cellAt(e.getX(), e.getY());
+				if (cell >= 0 && listener != null) {
+					listener.cellClicked(cell / TableauPanel.this.columns, cell % TableauPanel.this.columns);
+				}
+			}
+
+			public void mouseMoved(MouseEvent e) {
+				hoverOver(cellAt(e.getX(), e.getY()));
+			}
+
+			public void mouseDragged(MouseEvent e) {
+				hoverOver(cellAt(e.getX(), e.getY()));
+			}
+
+			public void mouseExited(MouseEvent e) {
+				hoverOver(-1);
+			}
+		};
+		addMouseListener(mouse);
+		addMouseMotionListener(mouse);
+	}
+
+	/**
+	 * Sets the listener told about clicks and hovers, replacing any previous one
+	 *
+	 * @param listener
+	 *            the listener, or <code>null</code> for none
+	 */
+	public void setCellListener(CellListener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * Shows <code>icon</code> at the given <code>row</code>/<code>column</code> with the default border, unclicked.
+	 *
+	 * @param icon
+	 *            the card image, or <code>null</code> to leave the cell blank
+	 * @param row
+	 *            the row number
+	 * @param column
+	 *            the column number
+	 */
+	public void setImage(Icon icon, int row, int column) {
+		int cell = row * columns + column;
+		if (icon != null) {
+			used[cell] = true;
+		} else if (cell == hover) {
+			// a card taken away under the mouse gets no more events, just as a removed label would not
+			hover = -1;
+		}
+		icons[cell] = icon;
+		borders[cell] = defaultBorder;
+		clicked[cell] = false;
+		repaintCell(cell);
+	}
+
+	/**
+	 * Removes the card at the given <code>row</code>/<code>column</code>, leaving a blank.
+	 *
+	 * @param row
+	 *            the row number
+	 * @param column
+	 *            the column number
+	 */
+	public void removeImage(int row, int column) {
+		setImage(null, row, column);
+	}
+
+	/**
+	 * Changes the <code>border</code> on the card at the specified <code>row</code>/<code>column</code>.
+	 *
+	 * @param row
+	 *            the row number
+	 * @param column
+	 *            the column number
+	 * @param border
+	 *            the border to draw around the card
+	 */
+	public void setBorder(int row, int column, Border border) {
+		int cell = row * columns + column;
+		if (borders[cell] != border) {
+			borders[cell] = border;
+			repaintCell(cell);
+		}
+	}
+
+	/**
+	 * Returns the border on the card at the specified <code>row</code>/<code>column</code>.
+	 *
+	 * @param row
+	 *            the row number
+	 * @param column
+	 *            the column number
+	 * @return the border
+	 */
+	public Border getBorder(int row, int column) {
+		return borders[row * columns + column];
+	}
+
+	/**
+	 * Marks the card at the specified <code>row</code>/<code>column</code> as clicked or not.
+	 *
+	 * @param row
+	 *            the row number
+	 * @param column
+	 *            the column number
+	 * @param clicked
+	 *            the new clicked state
+	 */
+	public void setClicked(int row, int column, boolean clicked) {
+		this.clicked[row * columns + column] = clicked;
+	}
+
+	/**
+	 * Returns whether the card at the specified <code>row</code>/<code>column</code> is clicked.
+	 *
+	 * @param row
+	 *            the row number
+	 * @param column
+	 *            the column number
+	 * @return <code>true</code> if clicked
+	 */
+	public boolean isClicked(int row, int column) {
+		return clicked[row * columns + column];
+	}
+
+	/**
+	 * Puts every card back to the default border and unclicked, repainting only cards that change.
+	 */
+	public void resetCells() {
+		for (int cell = 0; cell < icons.length; cell++) {
+			clicked[cell] = false;
+			if (borders[cell] != defaultBorder) {
+				borders[cell] = defaultBorder;
+				repaintCell(cell);
+			}
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.swing.JComponent#getPreferredSize()
+	 */
+	public Dimension getPreferredSize() {
+		if (isPreferredSizeSet()) {
+			return super.getPreferredSize();
+		}
+		Insets insets = getInsets();
+		return new Dimension(insets.left + insets.right + columns * slotWidth() - SLOT_GAP,
+				insets.top + insets.bottom + rows * slotHeight() - SLOT_GAP);
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.swing.JComponent#paintComponent(java.awt.Graphics)
+	 */
+	protected void paintComponent(Graphics g) {
+		Rectangle clip = g.getClipBounds();
+		Rectangle card = new Rectangle();
+		Color background = getBackground();
+		for (int cell = 0; cell < icons.length; cell++) {
+			if (!used[cell]) {
+				continue;
+			}
+			cardBounds(cell, card);
+			if (clip != null && !clip.intersects(card)) {
+				continue;
+			}
+			g.setColor(background);
+			g.fillRect(card.x, card.y, card.width, card.height);
+			if (icons[cell] != null) {
+				Insets insets = borders[cell].getBorderInsets(this);
+				icons[cell].paintIcon(this, g, card.x + insets.left, card.y + insets.top);
+				borders[cell].paintBorder(this, g, card.x, card.y, card.width, card.height);
+			}
+		}
+	}
+
+	/**
+	 * Tells the listener the mouse has moved from one card to another
+	 */
+	private void hoverOver(int cell) {
+		if (cell == hover) {
+			return;
+		}
+		int old = hover;
+		hover = cell;
+		if (listener != null) {
+			if (old >= 0) {
+				listener.cellExited(old / columns, old % columns);
+			}
+			if (cell >= 0) {
+				listener.cellEntered(cell / columns, cell % columns);
+			}
+		}
+	}
+
+	/**
+	 * Finds the cell whose card is under a point
+	 *
+	 * @return the cell, or -1 if the point is not over a card
+	 */
+	private int cellAt(int x, int y) {
+		Insets insets = getInsets();
+		int left = x - originX(insets);
+		int top = y - originY(insets);
+		if (left < 0 || top < 0) {
+			return -1;
+		}
+		int column = left / slotWidth();
+		int row = top / slotHeight();
+		if (row >= rows || column >= columns) {
+			return -1;
+		}
+		int cell = row * columns + column;
+		Rectangle card = new Rectangle();
+		cardBounds(cell, card);
+		return icons[cell] != null && card.contains(x, y) ? cell : -1;
+	}
+
+	/**
+	 * Sets <code>out</code> to the rectangle a cell's card and border occupy
+	 */
+	private void cardBounds(int cell, Rectangle out) {
+		Insets insets = getInsets();
+		out.x = originX(insets) + (cell % columns) * slotWidth() + CARD_GAP;
+		out.y = originY(insets) + (cell / columns) * slotHeight() + CARD_GAP;
+		out.width = cardWidth;
+		out.height = cardHeight;
+	}
+
+	/**
+	 * Repaints just one cell's card
+	 */
+	private void repaintCell(int cell) {
+		Rectangle card = new Rectangle();
+		cardBounds(cell, card);
+		repaint(card);
+	}
+
+	/**
+	 * Left edge of the grid, centered when the component is wider than it needs to be
+	 */
+	private int originX(Insets insets) {
+		int width = columns * slotWidth() - SLOT_GAP;
+		return insets.left + Math.max(0, (getWidth() - insets.left - insets.right - width) / 2);
+	}
+
+	/**
+	 * Top edge of the grid, centered when the component is taller than it needs to be
+	 */
+	private int originY(Insets insets) {
+		int height = rows * slotHeight() - SLOT_GAP;
+		return insets.top + Math.max(0, (getHeight() - insets.top - insets.bottom - height) / 2);
+	}
+
+	/**
+	 * Horizontal distance from one slot to the next
+	 */
+	private int slotWidth() {
+		return cardWidth + 2 * CARD_GAP + SLOT_GAP;
+	}
+
+	/**
+	 * Vertical distance from one slot to the next
+	 */
+	private int slotHeight() {
+		return cardHeight + 2 * CARD_GAP + SLOT_GAP;
+	}
+}
@@ -0,0 +1,250 @@
+package proj3;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Command line comparison of {@link Player} policies. Every policy plays the same range of game numbers, which is
+ * split across a <code>ForkJoinPool</code> the same way <code>Survey</code> splits it; players derive their randomness
+ * from the game number, so the results do not depend on the number of threads used.
+ *
+ * <pre>
+ * java proj3.Tournament [first] [last] [-threads n] [-players name,name,...] [-stats file.json|file.csv]
+ * </pre>
+ *
+ * The range defaults to 0..9,999 and the players to all of {@link Players#NAMES}. With <code>-stats</code> each
+ * player's score distribution and time per game are collected in {@link Statistics} and written to the file as the
+ * tournament runs, the same way <code>Survey</code> writes them.
+ */
+public class Tournament {
+
+	/**
+	 * Largest range of game numbers handed to a single task without splitting it further
+	 */
+	private static final int CHUNK_SIZE = 64;
+
+	/**
+	 * Running totals for each player over a range of game numbers
+	 */
+	public static final class Standings {
+		private final long[] games;
+		private final long[] wins;
+		private final long[] scoreTotal;
+		private final long[] moves;
+
+		Standings(int players) {
+			games = new long[players];
+			wins = new long[players];
+			scoreTotal = new long[players];
+			moves = new long[players];
+		}
+
+		//records one finished game for a player
+		void add(int player, Game game, int movesPlayed) {
+			games[player]++;
+			if (game.isWin()) {
+				wins[player]++;
+			}
+			scoreTotal[player] += game.getScore();
+			moves[player] += movesPlayed;
+		}
+
+		//folds other standings into these
+		void add(Standings other) {
+			for (int i = 0; i < games.length; i++) {
+				games[i] += other.games[i];
+				wins[i] += other.wins[i];
+				scoreTotal[i] += other.scoreTotal[i];
+				moves[i] += other.moves[i];
+			}
+		}
+
+		//number of deals a player finished
+		public long getGames(int player) {
+			return games[player];
+		}
+
+		//number of deals a player cleared
+		public long getWins(int player) {
+			return wins[player];
+		}
+
+		//share of deals a player cleared
+		public double getWinRate(int player) {
+			return games[player] == 0 ? 0 : (double) wins[player] / games[player];
+		}
+
+		//mean final score of a player
+		public double getAverageScore(int player) {
+			return games[player] == 0 ? 0 : (double) scoreTotal[player] / games[player];
+		}
+
+		//mean number of moves a player made per deal
+		public double getAverageMoves(int player) {
+			return games[player] == 0 ? 0 : (double) moves[player] / games[player];
+		}
+	}
+
+	/**
+	 * Plays every game number in [first, last] with every player, splitting large ranges in half
+	 */
+	private static final class RangeTask extends RecursiveTask<Standings> {
+		private static final long serialVersionUID = 1L;
+
+		private final long first;
+		private final long last;
+		private final ThreadLocal<Player[]> players;
+		private final ThreadLocal<Game> games;
+		//shared by every task, may be null
+		private final Statistics statistics;
+
+		RangeTask(long first, long last, ThreadLocal<Player[]> players, ThreadLocal<Game> games,
+				Statistics statistics) {
+			this.first = first;
+			this.last = last;
+			this.players = players;
+			this.games = games;
+			this.statistics = statistics;
+		}
+
+		protected Standings compute() {
+			if (last - first < CHUNK_SIZE) {
+				Player[] lineup = players.get();
+				Game game = games.get();
+				Standings standings = new Standings(lineup.length);
+				for (long seed = first; seed <= last; seed++) {
+					for (int i = 0; i < lineup.length; i++) {
+						long start = System.nanoTime();
+						int moves = play(game, lineup[i], seed);
+						standings.add(i, game, moves);
+						if (statistics != null) {
+							statistics.recordGame(i, game.getScore(), game.isWin(), moves, System.nanoTime() - start);
+						}
+					}
+				}
+				return standings;
+			}
+			long middle = first + (last - first) / 2;
+			RangeTask low = new RangeTask(first, middle, players, games, statistics);
+			RangeTask high = new RangeTask(middle + 1, last, players, games, statistics);
+			low.fork();
+			Standings standings = high.compute();
+			standings.add(low.join());
+			return standings;
+		}
+	}
+
+	//plays one deal to the end with a player, returns the number of moves made
+	public static int play(Game game, Player player, long gameNumber) {
+		game.newGame(gameNumber);
+		player.newGame(gameNumber);
+		int moves = 0;
+		while (!game.isWin()) {
+			int move = player.chooseMove(game);
+			// an illegal move would be asked for again forever, so treat it as giving up
+			if (move == Move.NONE || !game.makeMove(move)) {
+				break;
+			}
+			moves++;
+		}
+		return moves;
+	}
+
+	//plays [first, last] with each named player on the given number of threads
+	public static Standings run(long first, long last, int threads, String[] names) {
+		return run(first, last, threads, names, null);
+	}
+
+	//as above, also recording every game in statistics (which may be null) under the player's index in names
+	public static Standings run(long first, long last, int threads, final String[] names, Statistics statistics) {
+		ThreadLocal<Player[]> players = new ThreadLocal<Player[]>() {
+			protected Player[] initialValue() {
+				Player[] lineup = new Player[names.length];
+				for (int i = 0; i < names.length; i++) {
+					lineup[i] = Players.create(names[i], 5, 5);
+				}
+				return lineup;
+			}
+		};
+		ThreadLocal<Game> games = new ThreadLocal<Game>() {
+			protected Game initialValue() {
+				return new Game(5, 5);
+			}
+		};
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try {
+			return pool.invoke(new RangeTask(first, last, players, games, statistics));
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	//prints usage and quits
+	private static void usage() {
+		System.err.println("usage: java proj3.Tournament [first] [last] [-threads n] [-players name,name,...] "
+				+ "[-stats file]");
+		System.exit(2);
+	}
+
+	//command line entry point
+	public static void main(String[] args) throws IOException {
+		long first = 0;
+		long last = 9999;
+		int threads = Runtime.getRuntime().availableProcessors();
+		String[] names = Players.NAMES;
+		File statsFile = null;
+		int position = 0;
+		try {
+			for (int i = 0; i < args.length; i++) {
+				if (args[i].equals("-threads") && i + 1 < args.length) {
+					threads = Integer.parseInt(args[++i]);
+				} else if (args[i].equals("-players") && i + 1 < args.length) {
+					names = args[++i].split(",");
+				} else if (args[i].equals("-stats") && i + 1 < args.length) {
+					statsFile = new File(args[++i]);
+				} else if (position == 0) {
+					first = Long.parseLong(args[i]);
+					position++;
+				} else if (position == 1) {
+					last = Long.parseLong(args[i]);
+					position++;
+				} else {
+					usage();
+				}
+			}
+			for (String name : names) {
+				Players.create(name, 5, 5);
+			}
+		} catch (NumberFormatException e) {
+			usage();
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			usage();
+		}
+		if (first < 0 || last < first || threads < 1) {
+			usage();
+		}
+
+		System.out.println("Playing games " + first + " to " + last + " on " + threads + " threads");
+		long start = System.nanoTime();
+		Statistics statistics = statsFile == null ? null : new Statistics(names, Card.CARDS);
+		Thread exporter = statistics == null ? null : statistics.startExporting(statsFile, Survey.EXPORT_MILLIS);
+		Standings standings = run(first, last, threads, names, statistics);
+		if (statistics != null) {
+			exporter.interrupt();
+			statistics.write(statsFile);
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+
+		System.out.printf("%-12s %8s %8s %9s %10s %10s%n", "player", "games", "wins", "win rate", "avg score",
+				"avg moves");
+		for (int i = 0; i < names.length; i++) {
+			System.out.printf("%-12s %8d %8d %8.3f%% %10.3f %10.1f%n", names[i], standings.getGames(i),
+					standings.getWins(i), 100.0 * standings.getWinRate(i), standings.getAverageScore(i),
+					standings.getAverageMoves(i));
+		}
+		System.out.printf("elapsed: %.2f s%n", seconds);
+	}
+}
@@ -0,0 +1,141 @@
+package proj3;
+
+/**
+ * Open-addressed set of positions for the search code, keyed by Zobrist hash. The packed tableau and cursor are
+ * stored alongside each hash and compared on a hit, so two positions whose hashes collide are still told apart, and
+ * no objects are allocated per entry.
+ *
+ * Clearing is O(1): every entry is stamped with the generation it was added in and a clear just starts a new
+ * generation.
+ *
+ * Each entry also keeps the smallest move bound it was searched with (see <code>Solver</code>): a position searched
+ * with bound b covered every move above b, so it only needs searching again when reached with a smaller bound.
+ */
+final class TranspositionTable {
+
+	/**
+	 * Starting number of slots, must be a power of two
+	 */
+	private static final int INITIAL_CAPACITY = 1 << 12;
+
+	//longs stored per position, the packed tableau then the cursor
+	private final int stride;
+	private long[] hashes;
+	private long[] positions;
+	private int[] stamps;
+	//smallest bound each position has been searched with
+	private int[] bounds;
+	private int generation = 1;
+	private int size;
+
+	//constructor for tableaus of the given number of cells
+	TranspositionTable(int cells) {
+		stride = PackedState.wordCount(cells) + 1;
+		allocate(INITIAL_CAPACITY);
+	}
+
+	private void allocate(int capacity) {
+		hashes = new long[capacity];
+		positions = new long[capacity * stride];
+		stamps = new int[capacity];
+		bounds = new int[capacity];
+		size = 0;
+	}
+
+	//forget every position
+	void clear() {
+		size = 0;
+		generation++;
+		if (generation == 0) {
+			// stamps wrapped around, old entries could look current again
+			allocate(hashes.length);
+			generation = 1;
+		}
+	}
+
+	//number of positions stored
+	int size() {
+		return size;
+	}
+
+	//adds the game's current position, returns false if it was already there
+	boolean add(Game game) {
+		return add(game, Move.NONE);
+	}
+
+	//adds the game's current position to be searched above bound, returns false if it already has been
+	boolean add(Game game, int bound) {
+		return add(game.getHash(), game.getTableauWords(), game.getCursor(), bound);
+	}
+
+	//adds a position, returns false if it was already there
+	boolean add(long hash, long[] words, int cursor) {
+		return add(hash, words, cursor, Move.NONE);
+	}
+
+	//adds a position to be searched above bound, returns false if it was already there with a bound no larger
+	boolean add(long hash, long[] words, int cursor, int bound) {
+		if ((size + 1) * 4L > hashes.length * 3L) {
+			grow();
+		}
+		int mask = hashes.length - 1;
+		int slot = (int) (hash ^ (hash >>> 32)) & mask;
+		while (stamps[slot] == generation) {
+			if (hashes[slot] == hash && matches(slot, words, cursor)) {
+				if (bounds[slot] <= bound) {
+					return false;
+				}
+				bounds[slot] = bound;
+				return true;
+			}
+			slot = (slot + 1) & mask;
+		}
+		store(slot, hash, words, cursor);
+		bounds[slot] = bound;
+		size++;
+		return true;
+	}
+
+	private boolean matches(int slot, long[] words, int cursor) {
+		int base = slot * stride;
+		for (int i = 0; i < words.length; i++) {
+			if (positions[base + i] != words[i]) {
+				return false;
+			}
+		}
+		return positions[base + words.length] == cursor;
+	}
+
+	private void store(int slot, long hash, long[] words, int cursor) {
+		int base = slot * stride;
+		System.arraycopy(words, 0, positions, base, words.length);
+		positions[base + words.length] = cursor;
+		hashes[slot] = hash;
+		stamps[slot] = generation;
+	}
+
+	//doubles the table, re-inserting the current generation
+	private void grow() {
+		long[] oldHashes = hashes;
+		long[] oldPositions = positions;
+		int[] oldStamps = stamps;
+		int[] oldBounds = bounds;
+		int oldGeneration = generation;
+		allocate(oldHashes.length * 2);
+		generation = 1;
+		int mask = hashes.length - 1;
+		for (int i = 0; i < oldHashes.length; i++) {
+			if (oldStamps[i] == oldGeneration) {
+				int slot = (int) (oldHashes[i] ^ (oldHashes[i] >>> 32)) & mask;
+				while (stamps[slot] == generation) {
+					slot = (slot + 1) & mask;
+				}
+				System.arraycopy(oldPositions, i * stride, positions, slot * stride, stride);
+				hashes[slot] = oldHashes[i];
+				stamps[slot] = generation;
+				bounds[slot] = oldBounds[i];
+				size++;
+			}
+		}
+	}
+}
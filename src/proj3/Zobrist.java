@@ -0,0 +1,69 @@
+package proj3;
+
+/**
+ * Zobrist keys for Monte Carlo Solitaire positions. Every (tableau position, card) pair and every deck cursor value
+ * has a fixed random 64-bit key, and the hash of a position is the XOR of the keys for the cards on the tableau and the
+ * key for the cursor. Changing one cell or drawing one card therefore updates the hash with two XORs.
+ *
+ * Keys are derived from their index with a SplitMix64 step, so the same position always hashes to the same value, in
+ * every run and for every tableau size.
+ */
+public final class Zobrist {
+
+	/**
+	 * Card slots reserved per tableau position (matches the 6-bit cells of <code>PackedState</code>)
+	 */
+	private static final int CARD_SLOTS = 1 << PackedState.BITS_PER_CELL;
+
+	/**
+	 * Offset separating cursor keys from cell keys
+	 */
+	private static final long CURSOR_BASE = 1L << 40;
+
+	private final long[] cellKeys;
+	private final long[] cursorKeys;
+
+	//constructor for a tableau of the given number of cells and a deck of deckSize cards
+	public Zobrist(int cells, int deckSize) {
+		cellKeys = new long[cells * CARD_SLOTS];
+		for (int pos = 0; pos < cells; pos++) {
+			for (int card = 0; card < CARD_SLOTS; card++) {
+				// empty cells contribute nothing, so clearing a cell just removes its card's key
+				if (card != PackedState.EMPTY) {
+					cellKeys[pos * CARD_SLOTS + card] = mix((long) pos * CARD_SLOTS + card);
+				}
+			}
+		}
+		cursorKeys = new long[deckSize + 1];
+		for (int i = 0; i <= deckSize; i++) {
+			cursorKeys[i] = mix(CURSOR_BASE + i);
+		}
+	}
+
+	//SplitMix64 finaliser
+	static long mix(long z) {
+		z = (z + 1) * 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	//key for card at pos
+	public long cell(int pos, int card) {
+		return cellKeys[pos * CARD_SLOTS + card];
+	}
+
+	//key for having drawn cursor cards
+	public long cursor(int cursor) {
+		return cursorKeys[cursor];
+	}
+
+	//full hash of a packed tableau, for checking or seeding the incremental one
+	public long hash(long[] tableau, int cells, int cursor) {
+		long h = cursorKeys[cursor];
+		for (int pos = 0; pos < cells; pos++) {
+			h ^= cellKeys[pos * CARD_SLOTS + PackedState.get(tableau, pos)];
+		}
+		return h;
+	}
+}